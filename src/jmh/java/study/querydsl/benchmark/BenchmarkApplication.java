@@ -0,0 +1,63 @@
+package study.querydsl.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 벤치마크용으로 인메모리 H2 에 애플리케이션을 띄우고 데이터를 채운다.
+ * SQL 로그, p6spy, 캐시처럼 측정을 왜곡하는 기능은 끈다.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String database, String... extraArgs) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                "--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+                "--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+                "--decorator.datasource.enabled=false",
+                "--member.search.cache.enabled=false",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--logging.level.org.hibernate.type=warn"));
+        args.addAll(Arrays.asList(extraArgs));
+        return new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+    }
+
+    /**
+     * teamCount 개 팀에 memberCount 명을 고르게 나눠 저장한다. 나이는 0~99.
+     */
+    static void seed(ConfigurableApplicationContext context, int teamCount, int memberCount) {
+        MemberJpaRepository memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Team> teams = new ArrayList<>(teamCount);
+            for (int i = 0; i < teamCount; i++) {
+                teams.add(new Team("team" + i));
+            }
+            List<Member> members = new ArrayList<>(memberCount);
+            for (int i = 0; i < memberCount; i++) {
+                members.add(new Member("member" + i, i % 100, teams.get(i % teamCount)));
+            }
+            memberJpaRepository.saveAllTeams(teams);
+            memberJpaRepository.saveAll(members);
+        });
+    }
+}
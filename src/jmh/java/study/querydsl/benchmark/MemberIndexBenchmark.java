@@ -0,0 +1,74 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.index.MemberIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MemberIndex 의 나이 범위/팀 조회 지연 시간. DB 없이 인덱스만 만든다.
+ * 나이 0~99 균등, 팀 1000개 균등이므로 teamAndNarrowRange 는 members / 10만 건을 돌려준다.
+ * ./gradlew jmh -PjmhIncludes=MemberIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberIndexBenchmark {
+
+    private static final int TEAMS = 1000;
+
+    @Param({"1000000"})
+    public int members;
+
+    private MemberIndex index;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        MemberIndex.Builder builder = MemberIndex.builder();
+        for (int i = 0; i < members; i++) {
+            long teamId = random.nextInt(TEAMS);
+            builder.add(i + 1, "member" + i, random.nextInt(100), teamId, "team" + teamId);
+        }
+        index = builder.build();
+    }
+
+    @Benchmark
+    public int teamAndNarrowRange() {
+        return index.forEach("team7", 30, 30, null, ordinal -> { });
+    }
+
+    @Benchmark
+    public int teamAndWideRange() {
+        return index.forEach("team7", 20, 59, null, ordinal -> { });
+    }
+
+    @Benchmark
+    public int narrowRangeOnly() {
+        return index.forEach(null, 30, 30, null, ordinal -> { });
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> teamAndWideRangeRows() {
+        List<MemberTeamDto> rows = new ArrayList<>();
+        index.forEach("team7", 20, 59, null, ordinal -> rows.add(index.row(ordinal)));
+        return rows;
+    }
+}
@@ -0,0 +1,85 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberParallelScanner;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원 전체 스캔: 단일 커서(streamByBuilder)와 파티션 병렬 스캔의 스레드 수별 비교.
+ * reduce 는 파티션 스레드에서 바로 누적하므로 스레드 수에 비례해야 하고,
+ * scan 은 호출 스레드 하나가 모든 행을 받으므로 consumer 비용만큼 상한이 있다.
+ * ./gradlew jmh -PjmhIncludes=MemberParallelScanBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MemberParallelScanBenchmark {
+
+    private static final int FETCH_SIZE = 1000;
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    private ConfigurableApplicationContext context;
+    private MemberJpaRepository memberJpaRepository;
+    private MemberParallelScanner parallelScanner;
+    private MemberSearchCondition condition;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start("scan" + threads,
+                "--member.scan.threads=" + threads,
+                "--spring.datasource.hikari.maximum-pool-size=" + (threads + 2));
+        BenchmarkApplication.seed(context, 100, 200_000);
+
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        parallelScanner = context.getBean(MemberParallelScanner.class);
+        condition = new MemberSearchCondition();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long streamSequential(Blackhole blackhole) {
+        return memberJpaRepository.streamByBuilder(condition, FETCH_SIZE, blackhole::consume);
+    }
+
+    @Benchmark
+    public long scanOrdered(Blackhole blackhole) {
+        return parallelScanner.scan(condition, true, blackhole::consume);
+    }
+
+    @Benchmark
+    public long scanUnordered(Blackhole blackhole) {
+        return parallelScanner.scan(condition, false, blackhole::consume);
+    }
+
+    @Benchmark
+    public long reduceAgeSum() {
+        return parallelScanner.reduce(condition, () -> new long[1],
+                (sum, row) -> sum[0] += row.getAge(),
+                (left, right) -> new long[]{left[0] + right[0]})[0];
+    }
+}
@@ -0,0 +1,168 @@
+package study.querydsl.benchmark;
+
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * QuerydslBasicTest 의 DTO 조회 방식, 동적 쿼리 방식, 엔티티/DTO 조회 비용 비교.
+ * 각 연산은 age 10~19 (전체의 10%) 범위를 조회한다.
+ * searchByBuilder(BooleanBuilder) 와 searchByWhereParam(where 파라미터)은 같은 조인/조건/정렬(member_id)의 쿼리여야
+ * 동적 쿼리 작성 방식만 비교된다. (검색 캐시/인덱스는 끈다) 기동 시 두 결과가 같은지 확인한다.
+ * ./gradlew jmh -PjmhIncludes=MemberProjectionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberProjectionBenchmark {
+
+    private static final int AGE_GOE = 10;
+    private static final int AGE_LOE = 19;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager em;
+    private JPAQueryFactory queryFactory;
+    private MemberJpaRepository memberJpaRepository;
+    private MemberRepository memberRepository;
+    private MemberSearchCondition condition;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start("projection");
+        BenchmarkApplication.seed(context, 100, 10_000);
+
+        em = context.getBean(EntityManagerFactory.class).createEntityManager();
+        queryFactory = new JPAQueryFactory(em);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberRepository = context.getBean(MemberRepository.class);
+        condition = new MemberSearchCondition(null, "team7", AGE_GOE, AGE_LOE);
+        if (!searchByBuilder().equals(searchByWhereParam())) {
+            throw new IllegalStateException("searchByBuilder 와 search 의 결과가 다릅니다");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        em.close();
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberDto> projectionBean() {
+        List<MemberDto> result = queryFactory
+                .select(Projections.bean(MemberDto.class, member.username, member.age))
+                .from(member)
+                .where(member.age.between(AGE_GOE, AGE_LOE))
+                .fetch();
+        em.clear();
+        return result;
+    }
+
+    @Benchmark
+    public List<MemberDto> projectionFields() {
+        List<MemberDto> result = queryFactory
+                .select(Projections.fields(MemberDto.class, member.username, member.age))
+                .from(member)
+                .where(member.age.between(AGE_GOE, AGE_LOE))
+                .fetch();
+        em.clear();
+        return result;
+    }
+
+    @Benchmark
+    public List<MemberDto> projectionConstructor() {
+        List<MemberDto> result = queryFactory
+                .select(Projections.constructor(MemberDto.class, member.username, member.age))
+                .from(member)
+                .where(member.age.between(AGE_GOE, AGE_LOE))
+                .fetch();
+        em.clear();
+        return result;
+    }
+
+    @Benchmark
+    public List<MemberDto> projectionQueryProjection() {
+        List<MemberDto> result = queryFactory
+                .select(new QMemberDto(member.username, member.age))
+                .from(member)
+                .where(member.age.between(AGE_GOE, AGE_LOE))
+                .fetch();
+        em.clear();
+        return result;
+    }
+
+    @Benchmark
+    public List<MemberDto> projectionJpqlNew() {
+        List<MemberDto> result = em.createQuery(
+                "select new study.querydsl.dto.MemberDto(m.username, m.age) from Member m where m.age between :goe and :loe",
+                        MemberDto.class)
+                .setParameter("goe", AGE_GOE)
+                .setParameter("loe", AGE_LOE)
+                .getResultList();
+        em.clear();
+        return result;
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder() {
+        return memberJpaRepository.searchByBuilder(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByWhereParam() {
+        return memberRepository.search(condition);
+    }
+
+    @Benchmark
+    public List<Member> fetchEntity() {
+        List<Member> result = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .where(member.age.between(AGE_GOE, AGE_LOE))
+                .fetch();
+        em.clear();
+        return result;
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> fetchDto() {
+        List<MemberTeamDto> result = queryFactory
+                .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.age.between(AGE_GOE, AGE_LOE))
+                .fetch();
+        em.clear();
+        return result;
+    }
+}
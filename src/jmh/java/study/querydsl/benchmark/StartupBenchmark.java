@@ -0,0 +1,90 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 애플리케이션 기동부터 첫 요청 응답까지의 시간(time-to-first-request).
+ * - baseline : 기본 설정(ddl-auto create, SQL 포맷/주석) 을 인메모리 H2 로
+ * - faststart: faststart 프로파일
+ * 같은 JVM 에서 두 번째 기동부터는 클래스 로딩/JIT 가 끝난 상태라 콜드 스타트가 아니므로,
+ * fork 마다 워밍업 없이 한 번만 측정하고 fork 수로 표본을 늘린다.
+ * ./gradlew jmh -PjmhIncludes=StartupBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+    private static final AtomicInteger DATABASE_SEQUENCE = new AtomicInteger();
+
+    @Param({"baseline", "faststart"})
+    public String mode;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private ConfigurableApplicationContext context;
+
+    @TearDown(Level.Invocation)
+    public void stop() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+
+    @Benchmark
+    public String firstHello() throws Exception {
+        return get(start(), "/hello");
+    }
+
+    @Benchmark
+    public String firstMemberSearch() throws Exception {
+        return get(start(), "/v1/members?teamName=teamA&ageGoe=10");
+    }
+
+    private int start() {
+        String url = "--spring.datasource.url=jdbc:h2:mem:startup" + DATABASE_SEQUENCE.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(QuerydslApplication.class);
+        if ("faststart".equals(mode)) {
+            context = builder.profiles("faststart").run(url, "--server.port=0");
+        } else {
+            context = builder.run(url, "--server.port=0");
+        }
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    private String get(int port, String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + " -> " + response.statusCode());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,235 @@
+package study.querydsl.loadtest;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.controller.InitMember;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 회원 검색 엔드포인트 부하 드라이버.
+ * clients 개의 스레드가 검색 조건 형태(Shape)를 돌아가며 요청하고, 형태별 처리량과 p50/p95/p99 지연을 출력한다.
+ * --url 을 주지 않으면 loadtest 프로파일(인메모리 H2 + InitMember 데이터)로 애플리케이션을 같은 JVM 에 띄운다.
+ *
+ * ./gradlew loadTest -PloadTestArgs="--clients=32 --duration=60s --members=1000000 --teams=10000"
+ *
+ * 옵션: --url, --endpoint(/v2/members), --page-size(20), --clients(16), --warmup(10s), --duration(30s),
+ *       --teams(100000), --members(10000000)
+ */
+public final class MemberSearchLoadDriver {
+
+    /**
+     * MemberSearchCondition 에 값을 채우는 조합. 값은 InitMember 의 데이터 분포를 따른다.
+     */
+    enum Shape {
+        TEAM_NAME,
+        TEAM_NAME_AGE_RANGE,
+        AGE_RANGE,
+        USERNAME,
+        USERNAME_TEAM_NAME;
+
+        String query(ThreadLocalRandom random, int teams, int members) {
+            switch (this) {
+                case TEAM_NAME:
+                    return "teamName=" + teamName(random, teams);
+                case TEAM_NAME_AGE_RANGE: {
+                    int age = 20 + random.nextInt(50);
+                    return "teamName=" + teamName(random, teams) + "&ageGoe=" + age + "&ageLoe=" + (age + 10);
+                }
+                case AGE_RANGE: {
+                    int age = 5 + random.nextInt(85);
+                    return "ageGoe=" + age + "&ageLoe=" + (age + 2);
+                }
+                case USERNAME:
+                    return "username=" + InitMember.username(1 + random.nextInt(members));
+                case USERNAME_TEAM_NAME:
+                    return "username=" + InitMember.username(1 + random.nextInt(members)) + "&teamName=" + teamName(random, teams);
+                default:
+                    throw new IllegalStateException(name());
+            }
+        }
+
+        //InitMember 와 같이 앞쪽 팀에 몰리게 고른다.
+        private static String teamName(ThreadLocalRandom random, int teams) {
+            return "team" + ((long) (Math.pow(random.nextDouble(), 3) * teams) + 1);
+        }
+    }
+
+    private MemberSearchLoadDriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int clients = Integer.parseInt(options.getOrDefault("clients", "16"));
+        int teams = Integer.parseInt(options.getOrDefault("teams", "100000"));
+        int members = Integer.parseInt(options.getOrDefault("members", "10000000"));
+        int pageSize = Integer.parseInt(options.getOrDefault("page-size", "20"));
+        String endpoint = options.getOrDefault("endpoint", "/v2/members");
+        Duration warmup = DurationStyle.detectAndParse(options.getOrDefault("warmup", "10s"));
+        Duration duration = DurationStyle.detectAndParse(options.getOrDefault("duration", "30s"));
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.get("url");
+        if (baseUrl == null) {
+            context = new SpringApplicationBuilder(QuerydslApplication.class)
+                    .profiles("loadtest")
+                    .run("--server.port=0",
+                            "--member.loadtest.teams=" + teams,
+                            "--member.loadtest.members=" + members);
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+
+        try {
+            String target = baseUrl + endpoint + "?size=" + pageSize + "&";
+            System.out.printf("%s, %d clients, warmup %s, duration %s%n", baseUrl + endpoint, clients, warmup, duration);
+            Map<Shape, Samples> samples = run(target, clients, warmup, duration, teams, members);
+            print(samples, duration, System.out);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static Map<Shape, Samples> run(String target, int clients, Duration warmup, Duration duration,
+                                           int teams, int members) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long measureTo = measureFrom + duration.toNanos();
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<Map<Shape, Samples>>> futures = new ArrayList<>();
+            for (int client = 0; client < clients; client++) {
+                int offset = client;
+                futures.add(pool.submit(() -> {
+                    Map<Shape, Samples> local = new EnumMap<>(Shape.class);
+                    Shape[] shapes = Shape.values();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = offset; System.nanoTime() < measureTo; i++) {
+                        Shape shape = shapes[i % shapes.length];
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(target + shape.query(random, teams, members)))
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build();
+                        long started = System.nanoTime();
+                        boolean ok;
+                        try {
+                            ok = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                        } catch (IOException e) {
+                            ok = false;
+                        }
+                        long elapsed = System.nanoTime() - started;
+                        if (started >= measureFrom && started < measureTo) {
+                            local.computeIfAbsent(shape, s -> new Samples()).record(elapsed, ok);
+                        }
+                    }
+                    return local;
+                }));
+            }
+
+            Map<Shape, Samples> merged = new EnumMap<>(Shape.class);
+            for (Future<Map<Shape, Samples>> future : futures) {
+                future.get().forEach((shape, local) -> merged.computeIfAbsent(shape, s -> new Samples()).addAll(local));
+            }
+            return merged;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void print(Map<Shape, Samples> samples, Duration duration, PrintStream out) {
+        double seconds = duration.toNanos() / 1e9;
+        out.printf("%-22s %10s %8s %10s %9s %9s %9s %9s%n", "shape", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        Samples total = new Samples();
+        for (Map.Entry<Shape, Samples> entry : samples.entrySet()) {
+            print(out, entry.getKey().name(), entry.getValue(), seconds);
+            total.addAll(entry.getValue());
+        }
+        print(out, "TOTAL", total, seconds);
+    }
+
+    private static void print(PrintStream out, String name, Samples samples, double seconds) {
+        long[] sorted = samples.sorted();
+        out.printf("%-22s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                name, sorted.length, samples.errors, sorted.length / seconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("--name=value 형식이어야 합니다: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    /**
+     * 지연 시간(ns) 기록. 스레드마다 따로 쌓고 끝나면 합친다.
+     */
+    private static final class Samples {
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+
+        void record(long latencyNanos, boolean ok) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latencyNanos;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        void addAll(Samples other) {
+            if (size + other.size > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, size + other.size));
+            }
+            System.arraycopy(other.latencies, 0, latencies, size, other.size);
+            size += other.size;
+            errors += other.errors;
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(latencies, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
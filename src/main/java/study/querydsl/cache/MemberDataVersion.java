@@ -0,0 +1,55 @@
+package study.querydsl.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.jdbc.SqlStatementListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Member/Team 테이블의 데이터 버전.
+ * insert/update/delete 문장이 실행될 때와, 그 트랜잭션이 끝날 때(커밋/롤백) 각각 증가한다.
+ * 엔티티 flush(save, changeTeam)와 벌크 update/delete 모두 SQL 로 감지하므로 호출 경로와 무관하다.
+ */
+@Component
+public class MemberDataVersion implements SqlStatementListener {
+
+    //use_sql_comments 로 붙는 /* ... */ 주석을 건너뛴다.
+    private static final Pattern WRITE_STATEMENT = Pattern.compile(
+            "^\\s*(?:/\\*.*?\\*/\\s*)*(?:insert\\s+into|update|delete\\s+from|delete)\\s+(?:member|team)\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private static final Object TRANSACTION_KEY = new Object();
+
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void onStatement(String sql) {
+        if (!WRITE_STATEMENT.matcher(sql).lookingAt()) {
+            return;
+        }
+        bump();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(TRANSACTION_KEY)) {
+            TransactionSynchronizationManager.bindResource(TRANSACTION_KEY, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_KEY);
+                    //커밋 전 데이터를 읽어 캐시한 다른 스레드의 결과를 무효화한다.
+                    bump();
+                }
+            });
+        }
+    }
+}
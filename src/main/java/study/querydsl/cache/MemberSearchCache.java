@@ -0,0 +1,158 @@
+package study.querydsl.cache;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * searchByBuilder 결과 캐시. LRU(최대 건수) + TTL 로 제거한다.
+ * 항목은 저장 시점의 MemberDataVersion 을 함께 가지고 있어서, 이후 Member/Team 에 쓰기가 발생하면 자동으로 무효가 된다.
+ * 쓰기 트랜잭션 안에서의 조회는 아직 커밋되지 않은 변경을 볼 수 있으므로 캐시를 거치지 않는다.
+ * 읽기 전용 조회를 복제본으로 보내는 경우(routing)에는 쓰기 직후의 조회가 주 데이터소스로 가야 새 버전에 맞는 결과가 저장된다.
+ * (ReadWriteRoutingDataSource 의 read-after-write-window)
+ * 반환하는 리스트는 항목끼리 공유하므로 수정할 수 없는 복사본으로 저장한다. (수정하면 UnsupportedOperationException)
+ */
+@Component
+public class MemberSearchCache {
+
+    private final MemberDataVersion dataVersion;
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final LinkedHashMap<MemberSearchCondition, Entry> entries;
+
+    @Autowired
+    public MemberSearchCache(MemberDataVersion dataVersion,
+                             @Value("${member.search.cache.enabled:true}") boolean enabled,
+                             @Value("${member.search.cache.max-size:1000}") int maxSize,
+                             @Value("${member.search.cache.ttl:30s}") Duration ttl) {
+        this(dataVersion, enabled, maxSize, ttl, System::nanoTime);
+    }
+
+    MemberSearchCache(MemberDataVersion dataVersion, boolean enabled, int maxSize, Duration ttl, LongSupplier nanoClock) {
+        this.dataVersion = dataVersion;
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<MemberSearchCondition, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MemberSearchCondition, MemberSearchCache.Entry> eldest) {
+                if (size() > MemberSearchCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public List<MemberTeamDto> get(MemberSearchCondition condition, Supplier<List<MemberTeamDto>> loader) {
+        if (!enabled || inReadWriteTransaction()) {
+            return loader.get();
+        }
+        MemberSearchCondition key = normalize(condition);
+        //조회 전에 버전을 읽어야 조회 도중 발생한 쓰기를 놓치지 않는다.
+        long version = dataVersion.current();
+        long now = nanoClock.getAsLong();
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.version == version && now - entry.createdNanos < ttlNanos) {
+                    hits.increment();
+                    return entry.result;
+                }
+                entries.remove(key);
+                evictions.increment();
+            }
+        }
+
+        misses.increment();
+        List<MemberTeamDto> result = Collections.unmodifiableList(new ArrayList<>(loader.get()));
+        synchronized (entries) {
+            entries.put(key, new Entry(result, version, now));
+        }
+        return result;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Stats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    private static boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * 검색 결과에 영향이 없는 차이(빈 문자열과 null)를 같은 키로 만든다.
+     */
+    static MemberSearchCondition normalize(MemberSearchCondition condition) {
+        return new MemberSearchCondition(
+                StringUtils.hasText(condition.getUsername()) ? condition.getUsername() : null,
+                StringUtils.hasText(condition.getTeamName()) ? condition.getTeamName() : null,
+                condition.getAgeGoe(),
+                condition.getAgeLoe());
+    }
+
+    private static class Entry {
+        private final List<MemberTeamDto> result;
+        private final long version;
+        private final long createdNanos;
+
+        private Entry(List<MemberTeamDto> result, long version, long createdNanos) {
+            this.result = result;
+            this.version = version;
+            this.createdNanos = createdNanos;
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+
+        public Stats(long hits, long misses, long evictions, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+        }
+    }
+}
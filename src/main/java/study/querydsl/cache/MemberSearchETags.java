@@ -0,0 +1,45 @@
+package study.querydsl.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * 회원 검색 응답의 강한(strong) ETag.
+ * MemberDataVersion 과 요청 내용(경로, 빈 문자열을 null 로 정규화한 검색 조건, 페이지/필드 등)으로 만든다.
+ * 데이터 버전이 같고 요청이 같으면 응답 본문도 같으므로, If-None-Match 가 맞으면 DB 를 조회하지 않고 304 를 응답할 수 있다.
+ *
+ * 버전은 조회 전에 읽는다. 조회 도중 쓰기가 있었으면 다음 요청의 ETag 가 달라져 다시 조회한다.
+ *
+ * 단일 인스턴스 전용이다. 버전은 이 프로세스를 거친 쓰기만 세므로, 여러 인스턴스가 같은 DB 에 쓰면
+ * 다른 인스턴스의 쓰기를 모른 채 304 를 응답해 오래된 결과를 보여 줄 수 있다.
+ * (인스턴스 id 를 섞는 것은 재기동으로 버전이 0 부터 다시 시작해도 예전 ETag 와 겹치지 않게 하기 위해서다.)
+ */
+@Component
+public class MemberSearchETags {
+
+    private final MemberDataVersion dataVersion;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public MemberSearchETags(MemberDataVersion dataVersion) {
+        this.dataVersion = dataVersion;
+    }
+
+    /**
+     * @param resource 요청 경로
+     * @param extras   응답에 영향을 주는 그 밖의 파라미터 (페이지, 필드, 엔진 등)
+     */
+    public String of(String resource, MemberSearchCondition condition, Object... extras) {
+        long version = dataVersion.current();
+        StringBuilder key = new StringBuilder(instanceId)
+                .append('|').append(resource)
+                .append('|').append(MemberSearchCache.normalize(condition));
+        for (Object extra : extras) {
+            key.append('|').append(extra);
+        }
+        return "\"" + version + "-" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
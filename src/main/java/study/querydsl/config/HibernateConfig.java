@@ -0,0 +1,57 @@
+package study.querydsl.config;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.querydsl.event.MemberChangeDispatcher;
+import study.querydsl.jdbc.DelegatingStatementInspector;
+import study.querydsl.jdbc.SqlStatementListener;
+
+import java.util.List;
+
+@Configuration
+public class HibernateConfig {
+
+    @Bean
+    public DelegatingStatementInspector delegatingStatementInspector(ObjectProvider<SqlStatementListener> listeners) {
+        return new DelegatingStatementInspector(listeners);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer(DelegatingStatementInspector statementInspector) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, statementInspector);
+    }
+
+    /**
+     * 세션 팩토리를 만들 때 엔티티 이벤트 리스너를 등록한다.
+     * 빈 지연 초기화(faststart)여도 EntityManagerFactory 와 함께 만들어지도록 프로퍼티로 넘긴다.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer eventListenerCustomizer(MemberChangeDispatcher memberChangeDispatcher) {
+        Integrator integrator = new Integrator() {
+            @Override
+            public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+                EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+                registry.appendListeners(EventType.POST_INSERT, memberChangeDispatcher);
+                registry.appendListeners(EventType.POST_UPDATE, memberChangeDispatcher);
+                registry.appendListeners(EventType.POST_DELETE, memberChangeDispatcher);
+            }
+
+            @Override
+            public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+            }
+        };
+        return properties -> properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER,
+                (IntegratorProvider) () -> List.of(integrator));
+    }
+}
@@ -0,0 +1,95 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * 읽기 전용 트랜잭션은 복제본으로, 나머지는 주 데이터소스로 보낸다.
+ * 다음 경우에는 읽기 전용이어도 주 데이터소스를 사용한다.
+ * - 마지막 쓰기 트랜잭션이 끝난 뒤 readAfterWriteWindow 가 지나지 않은 경우 (복제 지연 허용 범위)
+ *   이 구간이 복제 지연보다 짧으면 쓰기 직후의 조회가 복제본의 이전 데이터를 읽고, MemberSearchCache 는 그 결과를
+ *   새 데이터 버전으로 저장해서 TTL 동안 돌려준다. 그래서 창은 트랜잭션 시작이 아니라 종료 시점부터 센다.
+ * - 복제본 커넥션 획득에 실패한 뒤 replicaRetryInterval 이 지나지 않은 경우
+ *
+ * 트랜잭션 시작 시점에는 아직 읽기 전용 여부가 동기화되지 않으므로 반드시 LazyConnectionDataSourceProxy 로 감싸서 사용한다.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long readAfterWriteWindowNanos;
+    private final long replicaRetryIntervalNanos;
+    private final LongSupplier nanoClock;
+
+    private volatile long lastWriteNanos;
+    private volatile long replicaDownUntilNanos;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica,
+                                      Duration readAfterWriteWindow, Duration replicaRetryInterval) {
+        this(primary, replica, readAfterWriteWindow, replicaRetryInterval, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock System.nanoTime 대신 쓸 시계 (테스트용)
+     */
+    ReadWriteRoutingDataSource(DataSource primary, DataSource replica,
+                               Duration readAfterWriteWindow, Duration replicaRetryInterval, LongSupplier nanoClock) {
+        this.primary = primary;
+        this.replica = replica;
+        this.readAfterWriteWindowNanos = readAfterWriteWindow.toNanos();
+        this.replicaRetryIntervalNanos = replicaRetryInterval.toNanos();
+        this.nanoClock = nanoClock;
+        long now = nanoClock.getAsLong();
+        this.lastWriteNanos = now - readAfterWriteWindowNanos;
+        this.replicaDownUntilNanos = now;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(username, password);
+    }
+
+    private Connection route(String username, String password) throws SQLException {
+        long now = nanoClock.getAsLong();
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (now - replicaDownUntilNanos >= 0 && now - lastWriteNanos >= readAfterWriteWindowNanos) {
+                try {
+                    return connect(replica, username, password);
+                } catch (SQLException e) {
+                    replicaDownUntilNanos = now + replicaRetryIntervalNanos;
+                    log.warn("복제본 커넥션 획득 실패, {}ms 동안 주 데이터소스로 읽습니다: {}",
+                            replicaRetryIntervalNanos / 1_000_000, e.getMessage());
+                }
+            }
+        } else if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            lastWriteNanos = now;
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        lastWriteNanos = nanoClock.getAsLong();
+                    }
+                });
+            }
+        }
+        return connect(primary, username, password);
+    }
+
+    private static Connection connect(DataSource dataSource, String username, String password) throws SQLException {
+        return username == null ? dataSource.getConnection() : dataSource.getConnection(username, password);
+    }
+}
@@ -0,0 +1,64 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * member.datasource.routing.enabled=true 이면 spring.datasource 를 주 데이터소스로,
+ * member.datasource.replica 를 읽기 전용 복제본으로 사용한다. (로컬: routing 프로파일)
+ * 커넥션을 미리 꺼내는 DataSource 데코레이터(p6spy 등)로 감싸면 라우팅이 동작하지 않으므로
+ * decorator.datasource.exclude-beans 에 dataSource 를 넣는다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "member.datasource.routing", name = "enabled", havingValue = "true")
+public class RoutingDataSourceConfig implements DisposableBean {
+
+    private HikariDataSource primaryPool;
+    private HikariDataSource replicaPool;
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties primaryProperties,
+                                 Environment environment,
+                                 @Value("${member.datasource.routing.read-after-write-window:1s}") Duration readAfterWriteWindow,
+                                 @Value("${member.datasource.routing.replica-retry-interval:30s}") Duration replicaRetryInterval,
+                                 @Value("${member.datasource.replica.init-schema:false}") boolean initReplicaSchema) {
+        DataSourceProperties replicaProperties = Binder.get(environment)
+                .bindOrCreate("member.datasource.replica", DataSourceProperties.class);
+
+        primaryPool = primaryProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primaryPool.setPoolName("primary");
+        replicaPool = replicaProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        replicaPool.setPoolName("replica");
+        replicaPool.setReadOnly(true);
+
+        if (initReplicaSchema) {
+            new ResourceDatabasePopulator(new ClassPathResource("db/schema.sql")).execute(replicaPool);
+        }
+
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primaryPool, replicaPool, readAfterWriteWindow, replicaRetryInterval));
+    }
+
+    @Override
+    public void destroy() {
+        if (replicaPool != null) {
+            replicaPool.close();
+        }
+        if (primaryPool != null) {
+            primaryPool.close();
+        }
+    }
+}
@@ -1,2 +1,110 @@
-package study.querydsl.controller;public class InitMember {
+package study.querydsl.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.cache.MemberDataVersion;
+import study.querydsl.event.MemberChange;
+import study.querydsl.event.MemberChangeDispatcher;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+/**
+ * loadtest 프로파일: 부하 테스트용 대량 데이터를 H2 에서 직접 생성한다.
+ * 엔티티를 거치지 않고 SYSTEM_RANGE 로 INSERT ... SELECT 하므로 천만 건도 수십 초 안에 채운다.
+ * - 팀: member.loadtest.teams 개, 이름은 "team" + id
+ * - 회원: member.loadtest.members 명, 이름은 성(SURNAMES) + id
+ * - 나이: 0~29 난수 세 개의 합 + 5 (5~92, 48 근처에 몰린 분포)
+ * - 소속 팀: 앞쪽 팀에 몰린 분포(난수의 세제곱), 1% 는 팀 없음
+ *
+ * ApplicationRunner 는 ApplicationReadyEvent 전에 실행되므로, 검색 인덱스는 다 채운 뒤에 적재된다.
+ */
+@Slf4j
+@Component
+@Profile("loadtest")
+public class InitMember implements ApplicationRunner {
+
+    public static final List<String> SURNAMES = List.of(
+            "kim", "lee", "park", "choi", "jung", "kang", "cho", "yoon", "jang", "lim");
+
+    //Member/Team 의 SequenceGenerator allocationSize
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final MemberDataVersion dataVersion;
+    private final MemberChangeDispatcher changeDispatcher;
+    private final int teams;
+    private final int members;
+    private final int chunkSize;
+
+    public InitMember(JdbcTemplate jdbcTemplate,
+                      EntityManagerFactory entityManagerFactory,
+                      MemberDataVersion dataVersion,
+                      MemberChangeDispatcher changeDispatcher,
+                      @Value("${member.loadtest.teams:100000}") int teams,
+                      @Value("${member.loadtest.members:10000000}") int members,
+                      @Value("${member.loadtest.chunk-size:1000000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.dataVersion = dataVersion;
+        this.changeDispatcher = changeDispatcher;
+        this.teams = teams;
+        this.members = members;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 부하 테스트 드라이버가 같은 이름을 만들 수 있도록 공개한다.
+     */
+    public static String username(long memberId) {
+        return SURNAMES.get((int) (memberId % SURNAMES.size())) + memberId;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long started = System.nanoTime();
+
+        for (long from = 1; from <= teams; from += chunkSize) {
+            long to = Math.min(from + chunkSize - 1, teams);
+            jdbcTemplate.update("insert into team (team_id, name) select x, 'team' || x from system_range(?, ?)", from, to);
+        }
+
+        String surname = surnameCase();
+        for (long from = 1; from <= members; from += chunkSize) {
+            long to = Math.min(from + chunkSize - 1, members);
+            jdbcTemplate.update("insert into member (member_id, username, age, team_id)"
+                            + " select x, " + surname + " || x,"
+                            + " cast(floor(rand() * 30) + floor(rand() * 30) + floor(rand() * 30) + 5 as int),"
+                            + " case when rand() < 0.01 then null else cast(floor(power(rand(), 3) * ?) + 1 as bigint) end"
+                            + " from system_range(?, ?)",
+                    teams, from, to);
+            log.info("seeded members {} / {}", to, members);
+        }
+
+        //시퀀스를 생성한 id 뒤로 옮긴다. (pooled 옵티마이저는 시퀀스 값 아래 allocationSize 만큼을 쓴다)
+        jdbcTemplate.execute("alter sequence team_seq restart with " + (teams + ALLOCATION_SIZE + 1));
+        jdbcTemplate.execute("alter sequence member_seq restart with " + (members + ALLOCATION_SIZE + 1));
+        jdbcTemplate.execute("analyze");
+
+        //엔티티를 거치지 않았으므로 캐시와 읽기 모델에 직접 알린다.
+        entityManagerFactory.getCache().evictAll();
+        dataVersion.bump();
+        changeDispatcher.publish(MemberChange.invalidatedAll());
+
+        log.info("seeded {} teams, {} members in {} ms", teams, members, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static String surnameCase() {
+        StringBuilder sql = new StringBuilder("case mod(x, ").append(SURNAMES.size()).append(')');
+        for (int i = 0; i < SURNAMES.size(); i++) {
+            sql.append(" when ").append(i).append(" then '").append(SURNAMES.get(i)).append('\'');
+        }
+        return sql.append(" end").toString();
+    }
 }
@@ -1,2 +1,155 @@
-package study.querydsl.controller;public class MemberController {
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.querydsl.cache.MemberSearchCache;
+import study.querydsl.cache.MemberSearchETags;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.MemberTeamField;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberParallelScanner;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.SearchEngine;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * 검색 엔드포인트는 데이터 버전과 요청으로 만든 ETag 를 내려주고, If-None-Match 가 맞으면 조회 없이 304 를 응답한다.
+ * (데이터 버전이 프로세스 안에만 있으므로 단일 인스턴스 전제, MemberSearchETags 참고)
+ */
+@RestController
+public class MemberController {
+
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final MemberParallelScanner parallelScanner;
+    private final MemberRepository memberRepository;
+    private final MemberSearchCache searchCache;
+    private final MemberSearchETags searchETags;
+    private final ObjectWriter ndjsonWriter;
+    private final int exportFetchSize;
+
+    public MemberController(MemberJpaRepository memberJpaRepository,
+                            MemberParallelScanner parallelScanner,
+                            MemberRepository memberRepository,
+                            MemberSearchCache searchCache,
+                            MemberSearchETags searchETags,
+                            ObjectMapper objectMapper,
+                            @Value("${member.export.fetch-size:500}") int exportFetchSize) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.parallelScanner = parallelScanner;
+        this.memberRepository = memberRepository;
+        this.searchCache = searchCache;
+        this.searchETags = searchETags;
+        this.ndjsonWriter = objectMapper.writerFor(MemberTeamDto.class).withRootValueSeparator("\n");
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    @GetMapping("/v1/members")
+    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition,
+                                              @RequestParam(defaultValue = "JPA") SearchEngine engine,
+                                              WebRequest request) {
+        if (request.checkNotModified(searchETags.of("/v1/members", condition, engine))) {
+            return null;
+        }
+        return memberJpaRepository.searchByBuilder(condition, engine);
+    }
+
+    /**
+     * fields 로 고른 필드만 조회한다. 예) /v1/members/fields?fields=MEMBER_ID,USERNAME&ageGoe=20
+     * fields 가 비어 있으면(?fields=) 400
+     */
+    @GetMapping("/v1/members/fields")
+    public List<MemberTeamDto> searchMemberFields(MemberSearchCondition condition,
+                                                  @RequestParam Set<MemberTeamField> fields,
+                                                  WebRequest request) {
+        if (fields.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fields 를 하나 이상 지정해야 합니다");
+        }
+        if (request.checkNotModified(searchETags.of("/v1/members/fields", condition, new TreeSet<>(fields)))) {
+            return null;
+        }
+        return memberJpaRepository.searchFields(condition, fields);
+    }
+
+    @GetMapping("/v2/members")
+    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable, WebRequest request) {
+        if (request.checkNotModified(searchETags.of("/v2/members", condition, pageable))) {
+            return null;
+        }
+        return memberRepository.searchPage(condition, pageable);
+    }
+
+    @GetMapping("/v3/members")
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable, WebRequest request) {
+        if (request.checkNotModified(searchETags.of("/v3/members", condition, pageable))) {
+            return null;
+        }
+        return memberRepository.searchPageParallel(condition, pageable);
+    }
+
+    @GetMapping("/v1/members/search-cache")
+    public MemberSearchCache.Stats searchCacheStats() {
+        return searchCache.getStats();
+    }
+
+    /**
+     * 검색 결과를 NDJSON(한 줄에 한 건)으로 읽는 즉시 응답에 기록한다.
+     * parallel 이면 member_id 범위를 나눠 병렬로 읽고, 같은 member_id 순서로 기록한다.
+     * fetchSize 는 두 경우 모두 커서(파티션마다)의 fetch size 이다.
+     * parallel 은 파티션마다 트랜잭션이 달라 한 시점의 스냅샷이 아니다. (MemberParallelScanner.partitions 참고)
+     */
+    @GetMapping("/v1/members/export")
+    public ResponseEntity<StreamingResponseBody> exportMembers(MemberSearchCondition condition,
+                                                               @RequestParam(required = false) Integer fetchSize,
+                                                               @RequestParam(defaultValue = "false") boolean parallel) {
+        int size = fetchSize != null ? fetchSize : exportFetchSize;
+        //응답이 시작된 뒤에는 상태 코드를 바꿀 수 없으므로 스트리밍 전에 검증한다.
+        if (size < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fetchSize 는 1 이상이어야 합니다: " + size);
+        }
+        StreamingResponseBody body = outputStream -> {
+            BufferedOutputStream out = new BufferedOutputStream(outputStream);
+            try (SequenceWriter writer = ndjsonWriter.writeValues(out)) {
+                Consumer<MemberTeamDto> write = row -> {
+                    try {
+                        writer.write(row);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+                if (parallel) {
+                    parallelScanner.scan(condition, true, size, write);
+                } else {
+                    memberJpaRepository.streamByBuilder(condition, size, write);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(body);
+    }
 }
@@ -0,0 +1,36 @@
+package study.querydsl.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.TeamStatsDrift;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.repository.TeamStatsRepository;
+
+import java.util.List;
+
+@RestController
+public class TeamController {
+
+    private final TeamStatsRepository teamStatsRepository;
+
+    public TeamController(TeamStatsRepository teamStatsRepository) {
+        this.teamStatsRepository = teamStatsRepository;
+    }
+
+    @GetMapping("/v1/teams/stats")
+    public List<TeamStatsDto> teamStats() {
+        return teamStatsRepository.findTeamStats();
+    }
+
+    @GetMapping("/v1/teams/stats/consistency")
+    public List<TeamStatsDrift> teamStatsConsistency() {
+        return teamStatsRepository.checkConsistency();
+    }
+
+    @PostMapping("/v1/teams/stats/rebuild")
+    public List<TeamStatsDto> rebuildTeamStats() {
+        teamStatsRepository.rebuild();
+        return teamStatsRepository.findTeamStats();
+    }
+}
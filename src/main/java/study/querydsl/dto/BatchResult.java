@@ -0,0 +1,30 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 배치 처리 결과. 읽은 행, update 한 행, 커밋 횟수와 처리 속도(행/초)를 담는다.
+ */
+@Getter
+@ToString
+public class BatchResult {
+    private long rowsRead;
+    private long rowsUpdated;
+    private int commits;
+    private long elapsedNanos;
+
+    public void addChunk(long rowsRead, long rowsUpdated) {
+        this.rowsRead += rowsRead;
+        this.rowsUpdated += rowsUpdated;
+        this.commits++;
+    }
+
+    public void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos > 0 ? rowsRead * 1e9 / elapsedNanos : 0;
+    }
+}
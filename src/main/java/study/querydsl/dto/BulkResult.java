@@ -0,0 +1,41 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 청크 단위 벌크 연산 결과. 청크마다 처리한 id 범위와 반영 건수를 담는다.
+ */
+@Getter
+@ToString
+public class BulkResult {
+    private final List<Chunk> chunks = new ArrayList<>();
+    private long totalRows;
+
+    public void add(long fromId, long toId, long rows) {
+        chunks.add(new Chunk(fromId, toId, rows));
+        totalRows += rows;
+    }
+
+    public List<Chunk> getChunks() {
+        return Collections.unmodifiableList(chunks);
+    }
+
+    @Getter
+    @ToString
+    public static class Chunk {
+        private final long fromId;
+        private final long toId;
+        private final long rows;
+
+        public Chunk(long fromId, long toId, long rows) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 커서(seek) 기반 페이지 결과.
+ * nextCursor 는 클라이언트에게 불투명한 값이며, 마지막 행의 member.id 를 인코딩한다.
+ */
+@Getter
+@ToString
+public class MemberCursorPage {
+    private final List<MemberTeamDto> content;
+    private final String nextCursor;
+
+    public MemberCursorPage(List<MemberTeamDto> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public static String encodeCursor(Long lastMemberId) {
+        if (lastMemberId == null) {
+            return null;
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("m:" + lastMemberId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("잘못된 커서입니다: " + cursor, e);
+        }
+        if (!decoded.startsWith("m:")) {
+            throw new IllegalArgumentException("잘못된 커서입니다: " + cursor);
+        }
+        try {
+            return Long.valueOf(decoded.substring(2));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("잘못된 커서입니다: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Objects;
+
+/**
+ * 배치 처리에서 행마다 넘기는 변경 가능한 회원 행.
+ * 한 객체를 다음 행으로 옮겨 쓰므로 넘겨받은 행을 보관하면 안 된다.
+ * 처음 읽은 값과 달라진 행만 update 한다.
+ */
+@Getter
+@ToString(exclude = {"originalUsername", "originalAge", "originalTeamId"})
+public final class MemberRow {
+
+    private long id;
+    private String username;
+    private int age;
+    private Long teamId;
+
+    private String originalUsername;
+    private int originalAge;
+    private Long originalTeamId;
+
+    /**
+     * 다음 행으로 옮긴다. (배치 리포지토리가 호출)
+     */
+    public void load(long id, String username, int age, Long teamId) {
+        this.id = id;
+        this.username = this.originalUsername = username;
+        this.age = this.originalAge = age;
+        this.teamId = this.originalTeamId = teamId;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public void setAge(int age) {
+        this.age = age;
+    }
+
+    /**
+     * null 이면 팀 없음
+     */
+    public void setTeamId(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public boolean isChanged() {
+        return age != originalAge
+                || !Objects.equals(username, originalUsername)
+                || !Objects.equals(teamId, originalTeamId);
+    }
+}
@@ -0,0 +1,223 @@
+package study.querydsl.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 대량 검색 결과를 열(column) 단위 배열로 담는다. (분석/내보내기 작업용)
+ * List&lt;MemberTeamDto&gt; 는 행마다 객체 헤더, 박싱된 Long, 중복된 팀 이름 문자열을 들고 있지만, 여기서는
+ * - memberIds / ages / teamIds : 원시 타입 배열 (팀 없음은 teamIdNulls 비트)
+ * - 팀 이름 : 사전 번호(teamNameCodes, null 은 -1) + 사전(teamNames)
+ * - 회원 이름 : 하나의 UTF-8 바이트 배열(usernameBytes)과 시작 위치(usernameOffsets), null 은 usernameNulls 비트
+ * 로 담는다. 회원 이름은 읽을 때 String 으로 만든다.
+ */
+public final class MemberTeamColumns {
+
+    private final int size;
+    private final long[] memberIds;
+    private final int[] ages;
+    private final long[] teamIds;
+    private final BitSet teamIdNulls;
+    private final int[] teamNameCodes;
+    private final String[] teamNames;
+    private final byte[] usernameBytes;
+    private final int[] usernameOffsets;
+    private final BitSet usernameNulls;
+
+    private MemberTeamColumns(Builder builder) {
+        this.size = builder.size;
+        this.memberIds = Arrays.copyOf(builder.memberIds, size);
+        this.ages = Arrays.copyOf(builder.ages, size);
+        this.teamIds = Arrays.copyOf(builder.teamIds, size);
+        this.teamIdNulls = (BitSet) builder.teamIdNulls.clone();
+        this.teamNameCodes = Arrays.copyOf(builder.teamNameCodes, size);
+        this.teamNames = new String[builder.teamNameDictionary.size()];
+        for (Map.Entry<String, Integer> entry : builder.teamNameDictionary.entrySet()) {
+            this.teamNames[entry.getValue()] = entry.getKey();
+        }
+        this.usernameBytes = Arrays.copyOf(builder.usernameBytes, builder.usernameLength);
+        this.usernameOffsets = Arrays.copyOf(builder.usernameOffsets, size + 1);
+        this.usernameNulls = (BitSet) builder.usernameNulls.clone();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getMemberId(int index) {
+        return memberIds[checkIndex(index)];
+    }
+
+    public int getAge(int index) {
+        return ages[checkIndex(index)];
+    }
+
+    public boolean hasTeam(int index) {
+        return !teamIdNulls.get(checkIndex(index));
+    }
+
+    /**
+     * 팀이 없으면 0. hasTeam 으로 먼저 확인한다.
+     */
+    public long getTeamId(int index) {
+        return teamIds[checkIndex(index)];
+    }
+
+    public String getTeamName(int index) {
+        int code = teamNameCodes[checkIndex(index)];
+        return code >= 0 ? teamNames[code] : null;
+    }
+
+    public String getUsername(int index) {
+        checkIndex(index);
+        if (usernameNulls.get(index)) {
+            return null;
+        }
+        int from = usernameOffsets[index];
+        return new String(usernameBytes, from, usernameOffsets[index + 1] - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 서로 다른 팀 이름 수.
+     */
+    public int teamNameCount() {
+        return teamNames.length;
+    }
+
+    public Row row(int index) {
+        return new Row(checkIndex(index));
+    }
+
+    /**
+     * 하나의 Row 를 옮겨 가며 모든 행을 넘긴다. 넘겨받은 Row 는 다음 행으로 바뀌므로 보관하면 안 된다.
+     */
+    public void forEach(Consumer<Row> action) {
+        Row cursor = new Row(0);
+        for (int index = 0; index < size; index++) {
+            cursor.index = index;
+            action.accept(cursor);
+        }
+    }
+
+    public MemberTeamDto toDto(int index) {
+        return new MemberTeamDto(getMemberId(index), getUsername(index), getAge(index),
+                hasTeam(index) ? getTeamId(index) : null, getTeamName(index));
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return index;
+    }
+
+    /**
+     * 한 행을 가리키는 뷰. 값은 열 배열에서 바로 읽는다.
+     */
+    public final class Row {
+        private int index;
+
+        private Row(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getMemberId() {
+            return memberIds[index];
+        }
+
+        public int getAge() {
+            return ages[index];
+        }
+
+        public boolean hasTeam() {
+            return !teamIdNulls.get(index);
+        }
+
+        public long getTeamId() {
+            return teamIds[index];
+        }
+
+        public String getTeamName() {
+            return MemberTeamColumns.this.getTeamName(index);
+        }
+
+        public String getUsername() {
+            return MemberTeamColumns.this.getUsername(index);
+        }
+
+        public MemberTeamDto toDto() {
+            return MemberTeamColumns.this.toDto(index);
+        }
+    }
+
+    public static final class Builder {
+        private int size;
+        private long[] memberIds = new long[256];
+        private int[] ages = new int[256];
+        private long[] teamIds = new long[256];
+        private final BitSet teamIdNulls = new BitSet();
+        private int[] teamNameCodes = new int[256];
+        private final Map<String, Integer> teamNameDictionary = new HashMap<>();
+        private byte[] usernameBytes = new byte[4096];
+        private int usernameLength;
+        private int[] usernameOffsets = new int[257];
+        private final BitSet usernameNulls = new BitSet();
+
+        private Builder() {
+        }
+
+        public Builder add(MemberTeamDto row) {
+            return add(row.getMemberId(), row.getUsername(), row.getAge(), row.getTeamId(), row.getTeamName());
+        }
+
+        public Builder add(long memberId, String username, int age, Long teamId, String teamName) {
+            if (size == memberIds.length) {
+                int capacity = size * 2;
+                memberIds = Arrays.copyOf(memberIds, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                teamIds = Arrays.copyOf(teamIds, capacity);
+                teamNameCodes = Arrays.copyOf(teamNameCodes, capacity);
+                usernameOffsets = Arrays.copyOf(usernameOffsets, capacity + 1);
+            }
+            memberIds[size] = memberId;
+            ages[size] = age;
+            if (teamId != null) {
+                teamIds[size] = teamId;
+            } else {
+                teamIdNulls.set(size);
+            }
+            teamNameCodes[size] = teamName != null
+                    ? teamNameDictionary.computeIfAbsent(teamName, name -> teamNameDictionary.size())
+                    : -1;
+            if (username != null) {
+                byte[] bytes = username.getBytes(StandardCharsets.UTF_8);
+                if (usernameLength + bytes.length > usernameBytes.length) {
+                    usernameBytes = Arrays.copyOf(usernameBytes, Math.max(usernameBytes.length * 2, usernameLength + bytes.length));
+                }
+                System.arraycopy(bytes, 0, usernameBytes, usernameLength, bytes.length);
+                usernameLength += bytes.length;
+            } else {
+                usernameNulls.set(size);
+            }
+            size++;
+            usernameOffsets[size] = usernameLength;
+            return this;
+        }
+
+        public MemberTeamColumns build() {
+            return new MemberTeamColumns(this);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package study.querydsl.dto;
+
+/**
+ * 필드 선택 검색에서 조회할 MemberTeamDto 필드.
+ * TEAM_ID 는 member.team_id 외래키 컬럼이므로 team 조인이 필요 없다.
+ */
+public enum MemberTeamField {
+    MEMBER_ID,
+    USERNAME,
+    AGE,
+    TEAM_ID,
+    TEAM_NAME
+}
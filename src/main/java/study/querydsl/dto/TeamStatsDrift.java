@@ -0,0 +1,20 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+/**
+ * 읽기 모델(actual)과 DB 에서 새로 집계한 값(expected)이 다른 팀.
+ * 한쪽에만 있는 팀은 다른 쪽이 null 이다.
+ */
+@Data
+public class TeamStatsDrift {
+    private Long teamId;
+    private TeamStatsDto expected;
+    private TeamStatsDto actual;
+
+    public TeamStatsDrift(Long teamId, TeamStatsDto expected, TeamStatsDto actual) {
+        this.teamId = teamId;
+        this.expected = expected;
+        this.actual = actual;
+    }
+}
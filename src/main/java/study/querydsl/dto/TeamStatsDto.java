@@ -0,0 +1,27 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+
+/**
+ * 팀별 회원 나이 통계. 회원이 없는 팀은 avg/min/max 가 null 이다.
+ */
+@Data
+public class TeamStatsDto {
+    private Long teamId;
+    private String teamName;
+    private long count;
+    private long sum;
+    private Double avg;
+    private Integer min;
+    private Integer max;
+
+    public TeamStatsDto(Long teamId, String teamName, long count, long sum, Integer min, Integer max) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.count = count;
+        this.sum = sum;
+        this.avg = count > 0 ? (double) sum / count : null;
+        this.min = min;
+        this.max = max;
+    }
+}
@@ -1,17 +1,26 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
 
 import javax.persistence.*;
 
 @Entity
-@Table(name = "Member")
+@Cacheable
+@Table(name = "Member", indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age", columnList = "age"),
+        //team_id 외래키 조인 + team 조건과 나이 범위를 함께 거는 검색
+        @Index(name = "idx_member_team_age", columnList = "team_id, age")
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id","username","age"})
 public class Member {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
 
@@ -38,8 +47,21 @@ public class Member {
             this.changeTeam(team);
         }
     }
+
+    /**
+     * 연관관계의 주인은 Member.team 이므로 FK 는 이 필드로 정해진다.
+     * Team.members 는 이미 읽어 둔 경우에만 맞춰 준다. 읽지 않은 컬렉션을 건드리면 팀 회원 전체를 로딩하므로,
+     * 팀 크기와 상관없이 O(1) 로 옮긴다. (읽지 않은 컬렉션은 나중에 flush 된 DB 상태로 로딩된다)
+     */
     public void changeTeam(Team team) {
+        Team previous = this.team;
         this.team = team;
-        this.getTeam().getMembers().add(this);
+        if (previous != null && previous != team
+                && Hibernate.isInitialized(previous) && Hibernate.isInitialized(previous.getMembers())) {
+            previous.getMembers().remove(this);
+        }
+        if (team != null && Hibernate.isInitialized(team) && Hibernate.isInitialized(team.getMembers())) {
+            team.getMembers().add(this);
+        }
     }
 }
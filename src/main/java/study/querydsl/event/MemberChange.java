@@ -0,0 +1,70 @@
+package study.querydsl.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 커밋된 Member/Team 변경 한 건.
+ * 회원 수정은 이전 상태의 MEMBER_REMOVED 와 새 상태의 MEMBER_ADDED 로 나타낸다.
+ * 벌크 연산처럼 행 단위 변경을 알 수 없으면 INVALIDATED 로 바뀌었을 수 있는 팀(teamIds 가 null 이면 전체)을 알린다.
+ */
+@Getter
+@ToString
+public final class MemberChange {
+
+    public enum Type {
+        MEMBER_ADDED, MEMBER_REMOVED, TEAM_SAVED, TEAM_REMOVED, INVALIDATED
+    }
+
+    private final Type type;
+    private final Long memberId;
+    private final String username;
+    private final int age;
+    private final Long teamId;
+    private final String teamName;
+    private final List<Long> teamIds;
+
+    private MemberChange(Type type, Long memberId, String username, int age, Long teamId, String teamName, List<Long> teamIds) {
+        this.type = type;
+        this.memberId = memberId;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.teamIds = teamIds;
+    }
+
+    public static MemberChange memberAdded(Long memberId, String username, int age, Long teamId) {
+        return new MemberChange(Type.MEMBER_ADDED, memberId, username, age, teamId, null, null);
+    }
+
+    public static MemberChange memberRemoved(Long memberId, int age, Long teamId) {
+        return new MemberChange(Type.MEMBER_REMOVED, memberId, null, age, teamId, null, null);
+    }
+
+    public static MemberChange teamSaved(Long teamId, String teamName) {
+        return new MemberChange(Type.TEAM_SAVED, null, null, 0, teamId, teamName, null);
+    }
+
+    public static MemberChange teamRemoved(Long teamId) {
+        return new MemberChange(Type.TEAM_REMOVED, null, null, 0, teamId, null, null);
+    }
+
+    public static MemberChange invalidated(Collection<Long> teamIds) {
+        return new MemberChange(Type.INVALIDATED, null, null, 0, null, null, List.copyOf(teamIds));
+    }
+
+    public static MemberChange invalidatedAll() {
+        return new MemberChange(Type.INVALIDATED, null, null, 0, null, null, null);
+    }
+
+    /**
+     * 모든 팀이 바뀌었을 수 있는 INVALIDATED 인지.
+     */
+    public boolean isAllTeams() {
+        return type == Type.INVALIDATED && teamIds == null;
+    }
+}
@@ -0,0 +1,154 @@
+package study.querydsl.event;
+
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Member/Team 의 insert/update/delete 이벤트를 MemberChange 로 옮겨 MemberChangeListener 들에게 전달한다.
+ * flush 시점(save, changeTeam 후 dirty checking, remove)에 불리며, 트랜잭션마다 모아 두었다가 커밋된 뒤에 전달한다.
+ * 엔티티 이벤트가 없는 벌크 연산은 publish 로 직접 알린다.
+ * HibernateConfig 에서 Integrator 로 등록한다.
+ */
+@Component
+public class MemberChangeDispatcher implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    //리스너는 EntityManager 에 의존할 수 있으므로 세션 팩토리를 만든 뒤에 찾는다.
+    private final ObjectProvider<MemberChangeListener> listeners;
+
+    public MemberChangeDispatcher(ObjectProvider<MemberChangeListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    /**
+     * 트랜잭션 안이면 커밋 뒤에, 밖이면 바로 전달한다.
+     */
+    public void publish(MemberChange change) {
+        publish(List.of(change));
+    }
+
+    /**
+     * 여러 변경을 순서대로 알린다. 트랜잭션 밖이면 리스너마다 한 번에 전달한다.
+     */
+    public void publish(List<MemberChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deliver(changes);
+            return;
+        }
+        //REQUIRES_NEW 로 중첩된 트랜잭션은 동기화 목록이 따로이므로 트랜잭션마다 모인다.
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges) {
+                ((PendingChanges) synchronization).changes.addAll(changes);
+                return;
+            }
+        }
+        PendingChanges pending = new PendingChanges();
+        pending.changes.addAll(changes);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            EntityPersister persister = event.getPersister();
+            Object[] state = event.getState();
+            publish(MemberChange.memberAdded((Long) event.getId(), username(persister, state), age(persister, state), teamId(persister, state)));
+        } else if (event.getEntity() instanceof Team) {
+            publish(MemberChange.teamSaved((Long) event.getId(), ((Team) event.getEntity()).getName()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Object[] oldState = event.getOldState();
+            if (oldState == null) {
+                //이전 상태를 모르면(분리된 엔티티를 select 없이 update) 어느 팀이 바뀌었는지 알 수 없다.
+                publish(MemberChange.invalidatedAll());
+                return;
+            }
+            EntityPersister persister = event.getPersister();
+            Object[] state = event.getState();
+            Long oldTeamId = teamId(persister, oldState);
+            int oldAge = age(persister, oldState);
+            if (!Objects.equals(oldTeamId, teamId(persister, state))
+                    || oldAge != age(persister, state)
+                    || !Objects.equals(username(persister, oldState), username(persister, state))) {
+                Long memberId = (Long) event.getId();
+                publish(MemberChange.memberRemoved(memberId, oldAge, oldTeamId));
+                publish(MemberChange.memberAdded(memberId, username(persister, state), age(persister, state), teamId(persister, state)));
+            }
+        } else if (event.getEntity() instanceof Team) {
+            publish(MemberChange.teamSaved((Long) event.getId(), ((Team) event.getEntity()).getName()));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            EntityPersister persister = event.getPersister();
+            Object[] state = event.getDeletedState();
+            publish(MemberChange.memberRemoved((Long) event.getId(), age(persister, state), teamId(persister, state)));
+        } else if (event.getEntity() instanceof Team) {
+            publish(MemberChange.teamRemoved((Long) event.getId()));
+        }
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    private void deliver(List<MemberChange> changes) {
+        listeners.orderedStream().forEach(listener -> listener.onCommit(changes));
+    }
+
+    private static String username(EntityPersister persister, Object[] state) {
+        return (String) state[persister.getEntityMetamodel().getPropertyIndex("username")];
+    }
+
+    private static int age(EntityPersister persister, Object[] state) {
+        Object age = state[persister.getEntityMetamodel().getPropertyIndex("age")];
+        return age != null ? (Integer) age : 0;
+    }
+
+    private static Long teamId(EntityPersister persister, Object[] state) {
+        Object team = state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        if (team == null) {
+            return null;
+        }
+        //프록시를 초기화하지 않고 식별자만 꺼낸다.
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return ((Team) team).getId();
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+        private final List<MemberChange> changes = new ArrayList<>();
+
+        @Override
+        public void afterCommit() {
+            deliver(changes);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package study.querydsl.event;
+
+import java.util.List;
+
+/**
+ * 커밋된 Member/Team 변경을 받는 읽기 모델.
+ * 한 트랜잭션의 변경이 발생 순서대로 한 번에 전달되며, 롤백된 트랜잭션의 변경은 전달되지 않는다.
+ */
+public interface MemberChangeListener {
+
+    void onCommit(List<MemberChange> changes);
+}
@@ -0,0 +1,303 @@
+package study.querydsl.index;
+
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * 회원 검색용 불변 인덱스.
+ * 회원을 나이 오름차순으로 정렬한 순번(ordinal)을 기준으로 원시 타입 배열에 담는다.
+ * - ages / ids / teams / usernames : ordinal 별 나이, member_id, 팀 순번(-1 은 팀 없음), 이름
+ * - teamMembers : 팀 순번별 소속 회원 ordinal 의 오름차순 배열. 팀 수와 무관하게 회원 수만큼의 int 만 쓴다.
+ * - 팀 이름은 팀 순번 사전(teamIds / teamNames)으로 인코딩하고, 이름으로 팀 순번들을 찾는다. (팀 이름은 유일하지 않다)
+ *
+ * 나이 범위는 이진 탐색으로 [from, to) ordinal 구간이 되고, 팀 조건은 팀 배열에서 from 을 이진 탐색해 구간 안만 훑는다.
+ * 후보 행을 훑는 동안 박싱하지 않으며, 결과 DTO 는 row 로 필요한 만큼만 만든다.
+ */
+public final class MemberIndex {
+
+    private static final int NO_TEAM = -1;
+
+    private final int[] ages;
+    private final long[] ids;
+    private final int[] teams;
+    private final String[] usernames;
+
+    private final long[] teamIds;
+    private final String[] teamNames;
+    private final int[][] teamMembers;
+    private final Map<String, int[]> teamsByName;
+
+    //member_id -> ordinal
+    private final long[] sortedIds;
+    private final int[] ordinalsBySortedId;
+
+    private MemberIndex(int[] ages, long[] ids, int[] teams, String[] usernames,
+                        long[] teamIds, String[] teamNames, int[][] teamMembers,
+                        long[] sortedIds, int[] ordinalsBySortedId) {
+        this.ages = ages;
+        this.ids = ids;
+        this.teams = teams;
+        this.usernames = usernames;
+        this.teamIds = teamIds;
+        this.teamNames = teamNames;
+        this.teamMembers = teamMembers;
+        this.teamsByName = indexNames(teamNames);
+        this.sortedIds = sortedIds;
+        this.ordinalsBySortedId = ordinalsBySortedId;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * 조건에 맞는 회원 ordinal 을 action 에 넘기고 건수를 돌려준다.
+     *
+     * @param teamName null 이면 팀 조건 없음
+     * @param excluded 건너뛸 ordinal 이면 true (null 가능)
+     */
+    public int forEach(String teamName, Integer ageGoe, Integer ageLoe, IntPredicate excluded, IntConsumer action) {
+        int from = ageGoe != null ? lowerBound(ageGoe) : 0;
+        int to = ageLoe != null ? upperBound(ageLoe) : ages.length;
+        if (from >= to) {
+            return 0;
+        }
+
+        int count = 0;
+        if (teamName == null) {
+            for (int ordinal = from; ordinal < to; ordinal++) {
+                if (excluded == null || !excluded.test(ordinal)) {
+                    action.accept(ordinal);
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        int[] teamOrdinals = teamsByName.get(teamName);
+        if (teamOrdinals == null) {
+            return 0;
+        }
+        for (int team : teamOrdinals) {
+            int[] members = teamMembers[team];
+            for (int i = lowerBound(members, from); i < members.length && members[i] < to; i++) {
+                int ordinal = members[i];
+                if (excluded == null || !excluded.test(ordinal)) {
+                    action.accept(ordinal);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public MemberTeamDto row(int ordinal) {
+        int team = teams[ordinal];
+        return new MemberTeamDto(ids[ordinal], usernames[ordinal], ages[ordinal],
+                team != NO_TEAM ? teamIds[team] : null,
+                team != NO_TEAM ? teamNames[team] : null);
+    }
+
+    /**
+     * @return ordinal, 없으면 -1
+     */
+    public int ordinalOf(long memberId) {
+        int position = Arrays.binarySearch(sortedIds, memberId);
+        return position >= 0 ? ordinalsBySortedId[position] : -1;
+    }
+
+    /**
+     * 팀 이름이 바뀐 인덱스. 회원 배열은 공유하고 팀 사전만 새로 만든다.
+     */
+    public MemberIndex withTeamName(long teamId, String name) {
+        for (int team = 0; team < teamIds.length; team++) {
+            if (teamIds[team] == teamId) {
+                if (name.equals(teamNames[team])) {
+                    return this;
+                }
+                String[] renamed = teamNames.clone();
+                renamed[team] = name;
+                return new MemberIndex(ages, ids, teams, usernames, teamIds, renamed, teamMembers, sortedIds, ordinalsBySortedId);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * excluded 를 뺀 모든 회원을 builder 에 옮겨 담는다. (델타를 합쳐 다시 만들 때)
+     */
+    void copyTo(Builder builder, IntPredicate excluded) {
+        forEach(null, null, null, excluded, ordinal -> {
+            int team = teams[ordinal];
+            builder.add(ids[ordinal], usernames[ordinal], ages[ordinal],
+                    team != NO_TEAM ? teamIds[team] : null,
+                    team != NO_TEAM ? teamNames[team] : null);
+        });
+    }
+
+    /**
+     * ages[i] >= age 인 첫 i
+     */
+    private int lowerBound(int age) {
+        int low = 0;
+        int high = ages.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ages[mid] < age) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * ages[i] > age 인 첫 i
+     */
+    private int upperBound(int age) {
+        int low = 0;
+        int high = ages.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ages[mid] <= age) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * values[i] >= value 인 첫 i (values 는 오름차순)
+     */
+    private static int lowerBound(int[] values, int value) {
+        int position = Arrays.binarySearch(values, value);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private static Map<String, int[]> indexNames(String[] teamNames) {
+        Map<String, int[]> result = new HashMap<>();
+        for (int team = 0; team < teamNames.length; team++) {
+            if (teamNames[team] == null) {
+                continue;
+            }
+            int[] previous = result.get(teamNames[team]);
+            int[] teams = previous == null ? new int[1] : Arrays.copyOf(previous, previous.length + 1);
+            teams[teams.length - 1] = team;
+            result.put(teamNames[team], teams);
+        }
+        return result;
+    }
+
+    /**
+     * 행을 임의 순서로 받아 나이순 인덱스를 만든다. 받는 동안에도 원시 타입 배열에 쌓는다.
+     */
+    public static final class Builder {
+        private int size;
+        private int[] ages = new int[1024];
+        private long[] ids = new long[1024];
+        private int[] teams = new int[1024];
+        private String[] usernames = new String[1024];
+
+        private final Map<Long, Integer> teamOrdinals = new HashMap<>();
+        private long[] teamIds = new long[16];
+        private String[] teamNames = new String[16];
+
+        private Builder() {
+        }
+
+        public Builder add(long id, String username, int age, Long teamId, String teamName) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ages = Arrays.copyOf(ages, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                teams = Arrays.copyOf(teams, capacity);
+                usernames = Arrays.copyOf(usernames, capacity);
+            }
+            ages[size] = age;
+            ids[size] = id;
+            teams[size] = teamId != null ? teamOrdinal(teamId, teamName) : NO_TEAM;
+            usernames[size] = username;
+            size++;
+            return this;
+        }
+
+        public MemberIndex build() {
+            //(나이 << 32 | 입력 순번) 을 정렬해 박싱 없이 나이순 순열을 얻는다.
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = ((long) ages[i] << 32) | i;
+            }
+            Arrays.sort(order);
+
+            int teamCount = teamOrdinals.size();
+            int[] teamSizes = new int[teamCount];
+            for (int i = 0; i < size; i++) {
+                if (teams[i] != NO_TEAM) {
+                    teamSizes[teams[i]]++;
+                }
+            }
+            int[][] teamMembers = new int[teamCount][];
+            for (int team = 0; team < teamCount; team++) {
+                teamMembers[team] = new int[teamSizes[team]];
+            }
+            //ordinal 순으로 채우므로 팀 배열은 정렬된 상태가 된다.
+            int[] teamFill = new int[teamCount];
+
+            int[] sortedAges = new int[size];
+            long[] sortedById = new long[size];
+            long[] ordinalIds = new long[size];
+            int[] ordinalTeams = new int[size];
+            String[] ordinalUsernames = new String[size];
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                int source = (int) order[ordinal];
+                sortedAges[ordinal] = ages[source];
+                ordinalIds[ordinal] = ids[source];
+                ordinalTeams[ordinal] = teams[source];
+                ordinalUsernames[ordinal] = usernames[source];
+                int team = teams[source];
+                if (team != NO_TEAM) {
+                    teamMembers[team][teamFill[team]++] = ordinal;
+                }
+                sortedById[ordinal] = ids[source];
+            }
+
+            Arrays.sort(sortedById);
+            int[] ordinalsBySortedId = new int[size];
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                ordinalsBySortedId[Arrays.binarySearch(sortedById, ordinalIds[ordinal])] = ordinal;
+            }
+
+            return new MemberIndex(sortedAges, ordinalIds, ordinalTeams, ordinalUsernames,
+                    Arrays.copyOf(teamIds, teamCount), Arrays.copyOf(teamNames, teamCount), teamMembers,
+                    sortedById, ordinalsBySortedId);
+        }
+
+        private int teamOrdinal(long teamId, String teamName) {
+            Integer ordinal = teamOrdinals.get(teamId);
+            if (ordinal != null) {
+                return ordinal;
+            }
+            int team = teamOrdinals.size();
+            if (team == teamIds.length) {
+                teamIds = Arrays.copyOf(teamIds, team * 2);
+                teamNames = Arrays.copyOf(teamNames, team * 2);
+            }
+            teamIds[team] = teamId;
+            teamNames[team] = teamName;
+            teamOrdinals.put(teamId, team);
+            return team;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package study.querydsl.index;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.event.MemberChange;
+import study.querydsl.event.MemberChangeListener;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * searchByBuilder 의 나이 범위 + 팀 이름 조건을 DB 없이 답하는 프로세스 내 인덱스. (member.search.index.enabled)
+ *
+ * 기동이 끝나면 별도 스레드에서 MemberIndex 를 적재하고, 이후 커밋된 변경(MemberChangeDispatcher)은 델타로 얹는다.
+ * - 바뀌거나 지워진 회원은 기존 인덱스에서 ordinal 비트로 제외하고, 현재 값은 overlay 에 둔다.
+ *   둘 다 바뀐 페이지/버킷만 복사하는 구조(PagedBitSet, PagedMap)라서 커밋 하나의 비용이 회원 수에 비례하지 않는다.
+ * - overlay 가 compact-threshold 를 넘으면 메모리에서 합쳐 새 인덱스를 만든다.
+ * - 벌크 연산(INVALIDATED)이 오면 DB 에서 다시 적재하고, 그동안은 DB 로 조회하게 한다.
+ * 적재/합치기 도중 커밋된 변경은 기록해 두었다가 새 인덱스에 다시 적용한다. (회원 id 기준 덮어쓰기라 중복 적용해도 같다)
+ *
+ * 조회는 불변 View 를 읽기만 하므로 잠그지 않는다. 이름 조건이 있거나, 적재 전이거나,
+ * 커밋되지 않은 변경을 볼 수 있는 쓰기 트랜잭션 안이면 null 을 돌려 DB 로 조회하게 한다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "member.search.index", name = "enabled", havingValue = "true")
+public class MemberSearchIndex implements MemberChangeListener, DisposableBean {
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate loadTransaction;
+    private final int compactThreshold;
+    private final int loadFetchSize;
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "member-search-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean reloadScheduled = new AtomicBoolean();
+    private final AtomicBoolean compactScheduled = new AtomicBoolean();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile View view;
+    //적재/합치기 중에 커밋된 변경. 그 외에는 null (this 로 보호)
+    private List<MemberChange> replayLog;
+
+    public MemberSearchIndex(EntityManager em,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${member.search.index.compact-threshold:10000}") int compactThreshold,
+                             @Value("${member.search.index.load-fetch-size:1000}") int loadFetchSize) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.loadTransaction = new TransactionTemplate(transactionManager);
+        this.loadTransaction.setReadOnly(true);
+        this.loadTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.compactThreshold = compactThreshold;
+        this.loadFetchSize = loadFetchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        scheduleReload();
+    }
+
+    /**
+     * @return 조건에 맞는 회원(DB 조회와 같은 member_id 순). 인덱스로 답할 수 없으면 null
+     */
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        View current = view;
+        if (current == null || current.stale || StringUtils.hasText(condition.getUsername()) || inReadWriteTransaction()) {
+            return null;
+        }
+        String teamName = StringUtils.hasText(condition.getTeamName()) ? condition.getTeamName() : null;
+        Integer ageGoe = condition.getAgeGoe();
+        Integer ageLoe = condition.getAgeLoe();
+
+        List<MemberTeamDto> result = new ArrayList<>();
+        MemberIndex base = current.base;
+        base.forEach(teamName, ageGoe, ageLoe, current.excluded::get, ordinal -> result.add(base.row(ordinal)));
+        current.overlay.forEachValue(row -> {
+            String rowTeamName = row.teamId != null ? current.teamNames.get(row.teamId) : null;
+            if ((ageGoe == null || row.age >= ageGoe)
+                    && (ageLoe == null || row.age <= ageLoe)
+                    && (teamName == null || teamName.equals(rowTeamName))) {
+                result.add(new MemberTeamDto(row.id, row.username, row.age, row.teamId, rowTeamName));
+            }
+        });
+        //인덱스는 나이 순, overlay 는 순서가 없으므로 정렬한다.
+        result.sort(Comparator.comparing(MemberTeamDto::getMemberId));
+        return result;
+    }
+
+    public boolean isReady() {
+        View current = view;
+        return current != null && !current.stale;
+    }
+
+    @Override
+    public synchronized void onCommit(List<MemberChange> changes) {
+        if (replayLog != null) {
+            replayLog.addAll(changes);
+        }
+        if (view == null) {
+            return;
+        }
+        boolean wasStale = view.stale;
+        view = view.apply(changes);
+        if (view.stale && !wasStale) {
+            scheduleReload();
+        } else if (view.overlay.size() > compactThreshold) {
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * DB 에서 전체를 다시 적재한다.
+     */
+    public void reload() {
+        rebuildLock.lock();
+        try {
+            synchronized (this) {
+                replayLog = new ArrayList<>();
+            }
+            long started = System.nanoTime();
+            MemberIndex.Builder builder = MemberIndex.builder();
+            Map<Long, String> teamNames = new HashMap<>();
+            loadTransaction.executeWithoutResult(status -> {
+                for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+                    teamNames.put(row.get(team.id), row.get(team.name));
+                }
+                //DTO 프로젝션은 영속성 컨텍스트에 쌓이지 않는다.
+                try (CloseableIterator<MemberTeamDto> rows = queryFactory
+                        .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .setHint(QueryHints.FETCH_SIZE, loadFetchSize)
+                        .setHint(QueryHints.READ_ONLY, true)
+                        .iterate()) {
+                    while (rows.hasNext()) {
+                        MemberTeamDto row = rows.next();
+                        builder.add(row.getMemberId(), row.getUsername(), row.getAge(), row.getTeamId(), row.getTeamName());
+                    }
+                }
+            });
+            MemberIndex index = install(builder.build(), teamNames);
+            log.info("member search index loaded: {} members in {} ms", index.size(), (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            synchronized (this) {
+                replayLog = null;
+            }
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * overlay 를 기존 인덱스와 합쳐 새 인덱스를 만든다. DB 를 읽지 않는다.
+     */
+    public void compact() {
+        rebuildLock.lock();
+        try {
+            View source;
+            synchronized (this) {
+                source = view;
+                if (source == null || source.stale) {
+                    return;
+                }
+                replayLog = new ArrayList<>();
+            }
+            MemberIndex.Builder builder = MemberIndex.builder();
+            source.base.copyTo(builder, source.excluded::get);
+            source.overlay.forEachValue(row ->
+                    builder.add(row.id, row.username, row.age, row.teamId, row.teamId != null ? source.teamNames.get(row.teamId) : null));
+            install(builder.build(), source.teamNames);
+        } finally {
+            synchronized (this) {
+                replayLog = null;
+            }
+            rebuildLock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private synchronized MemberIndex install(MemberIndex index, Map<Long, String> teamNames) {
+        View installed = new View(index, PagedBitSet.EMPTY, PagedMap.empty(), new HashMap<>(teamNames), false).apply(replayLog);
+        replayLog = null;
+        view = installed;
+        if (installed.stale) {
+            //적재 중에 벌크 연산이 있었으면 그 결과를 봤는지 알 수 없다.
+            scheduleReload();
+        }
+        return index;
+    }
+
+    private void scheduleReload() {
+        if (reloadScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                reloadScheduled.set(false);
+                try {
+                    reload();
+                } catch (RuntimeException e) {
+                    log.warn("member search index load failed; searches fall back to the database", e);
+                }
+            });
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (compactScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                compactScheduled.set(false);
+                compact();
+            });
+        }
+    }
+
+    private static boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * 조회가 보는 불변 상태. 변경은 바뀐 부분만 복사한 새 View 로 교체한다.
+     */
+    private static final class View {
+        private final MemberIndex base;
+        //base 에서 바뀌었거나 지워진 ordinal
+        private final PagedBitSet excluded;
+        private final PagedMap<OverlayRow> overlay;
+        private final Map<Long, String> teamNames;
+        private final boolean stale;
+
+        private View(MemberIndex base, PagedBitSet excluded, PagedMap<OverlayRow> overlay, Map<Long, String> teamNames, boolean stale) {
+            this.base = base;
+            this.excluded = excluded;
+            this.overlay = overlay;
+            this.teamNames = teamNames;
+            this.stale = stale;
+        }
+
+        View apply(List<MemberChange> changes) {
+            if (changes.isEmpty()) {
+                return this;
+            }
+            MemberIndex nextBase = base;
+            PagedBitSet.Editor nextExcluded = excluded.edit();
+            PagedMap.Editor<OverlayRow> nextOverlay = overlay.edit();
+            Map<Long, String> nextTeamNames = teamNames;
+            boolean nextStale = stale;
+
+            for (MemberChange change : changes) {
+                switch (change.getType()) {
+                    case MEMBER_ADDED:
+                    case MEMBER_REMOVED: {
+                        int ordinal = nextBase.ordinalOf(change.getMemberId());
+                        if (ordinal >= 0) {
+                            nextExcluded.set(ordinal);
+                        }
+                        if (change.getType() == MemberChange.Type.MEMBER_ADDED) {
+                            nextOverlay.put(change.getMemberId(), new OverlayRow(
+                                    change.getMemberId(), change.getUsername(), change.getAge(), change.getTeamId()));
+                        } else {
+                            nextOverlay.remove(change.getMemberId());
+                        }
+                        break;
+                    }
+                    case TEAM_SAVED:
+                        if (!Objects.equals(nextTeamNames.get(change.getTeamId()), change.getTeamName())) {
+                            if (nextTeamNames == teamNames) {
+                                nextTeamNames = new HashMap<>(teamNames);
+                            }
+                            nextTeamNames.put(change.getTeamId(), change.getTeamName());
+                            nextBase = nextBase.withTeamName(change.getTeamId(), change.getTeamName());
+                        }
+                        break;
+                    case TEAM_REMOVED:
+                        //팀을 지우려면 소속 회원이 먼저 지워져 있어야 하므로 이름만 남아 있어도 걸리는 회원이 없다.
+                        break;
+                    case INVALIDATED:
+                        nextStale = true;
+                        break;
+                }
+            }
+            return new View(nextBase, nextExcluded.build(), nextOverlay.build(), nextTeamNames, nextStale);
+        }
+    }
+
+    private static final class OverlayRow {
+        private final long id;
+        private final String username;
+        private final int age;
+        private final Long teamId;
+
+        private OverlayRow(long id, String username, int age, Long teamId) {
+            this.id = id;
+            this.username = username;
+            this.age = age;
+            this.teamId = teamId;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package study.querydsl.index;
+
+import java.util.Arrays;
+
+/**
+ * 페이지(65536 비트)로 나눈 불변 비트 집합. 비트가 하나도 없는 페이지는 만들지 않는다.
+ * Editor 로 바꾸면 바뀐 페이지만 복사하고 나머지 페이지는 원본과 공유하므로,
+ * 변경 한 번의 비용은 전체 비트 수가 아니라 (페이지 수 + 바뀐 페이지 크기)에 비례한다.
+ */
+final class PagedBitSet {
+
+    private static final int PAGE_SHIFT = 16;
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+    private static final int PAGE_WORDS = 1 << (PAGE_SHIFT - 6);
+
+    static final PagedBitSet EMPTY = new PagedBitSet(new long[0][]);
+
+    private final long[][] pages;
+
+    private PagedBitSet(long[][] pages) {
+        this.pages = pages;
+    }
+
+    boolean get(int index) {
+        int page = index >>> PAGE_SHIFT;
+        if (page >= pages.length || pages[page] == null) {
+            return false;
+        }
+        return (pages[page][(index & PAGE_MASK) >>> 6] & (1L << index)) != 0;
+    }
+
+    Editor edit() {
+        return new Editor(pages);
+    }
+
+    /**
+     * 원본을 바꾸지 않고 새 PagedBitSet 을 만든다. 한 번만 build 할 수 있다.
+     */
+    static final class Editor {
+        private long[][] pages;
+        //이 Editor 가 복사해서 바꿔도 되는 페이지
+        private boolean[] owned;
+
+        private Editor(long[][] source) {
+            this.pages = source.clone();
+            this.owned = new boolean[source.length];
+        }
+
+        void set(int index) {
+            int page = index >>> PAGE_SHIFT;
+            if (page >= pages.length) {
+                pages = Arrays.copyOf(pages, page + 1);
+                owned = Arrays.copyOf(owned, page + 1);
+            }
+            if (!owned[page]) {
+                pages[page] = pages[page] == null ? new long[PAGE_WORDS] : pages[page].clone();
+                owned[page] = true;
+            }
+            pages[page][(index & PAGE_MASK) >>> 6] |= 1L << index;
+        }
+
+        PagedBitSet build() {
+            PagedBitSet result = new PagedBitSet(pages);
+            pages = null;
+            owned = null;
+            return result;
+        }
+    }
+}
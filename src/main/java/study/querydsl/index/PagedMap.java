@@ -0,0 +1,93 @@
+package study.querydsl.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * long 키를 256 개 버킷으로 나눈 불변 맵.
+ * Editor 로 바꾸면 바뀐 버킷만 복사하고 나머지 버킷은 원본과 공유한다.
+ */
+final class PagedMap<V> {
+
+    private static final int BUCKETS = 256;
+
+    private static final PagedMap<?> EMPTY = new PagedMap<>(Collections.nCopies(BUCKETS, Collections.emptyMap()), 0);
+
+    private final List<Map<Long, V>> buckets;
+    private final int size;
+
+    private PagedMap(List<Map<Long, V>> buckets, int size) {
+        this.buckets = buckets;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> PagedMap<V> empty() {
+        return (PagedMap<V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEachValue(Consumer<? super V> action) {
+        for (Map<Long, V> bucket : buckets) {
+            bucket.values().forEach(action);
+        }
+    }
+
+    Editor<V> edit() {
+        return new Editor<>(buckets, size);
+    }
+
+    private static int bucket(long key) {
+        return Long.hashCode(key) & (BUCKETS - 1);
+    }
+
+    /**
+     * 원본을 바꾸지 않고 새 PagedMap 을 만든다. 한 번만 build 할 수 있다.
+     */
+    static final class Editor<V> {
+        private List<Map<Long, V>> buckets;
+        //이 Editor 가 복사해서 바꿔도 되는 버킷
+        private boolean[] owned = new boolean[BUCKETS];
+        private int size;
+
+        private Editor(List<Map<Long, V>> source, int size) {
+            this.buckets = new ArrayList<>(source);
+            this.size = size;
+        }
+
+        void put(long key, V value) {
+            if (ownedBucket(key).put(key, value) == null) {
+                size++;
+            }
+        }
+
+        void remove(long key) {
+            if (buckets.get(bucket(key)).containsKey(key) && ownedBucket(key).remove(key) != null) {
+                size--;
+            }
+        }
+
+        PagedMap<V> build() {
+            PagedMap<V> result = new PagedMap<>(buckets, size);
+            buckets = null;
+            owned = null;
+            return result;
+        }
+
+        private Map<Long, V> ownedBucket(long key) {
+            int bucket = bucket(key);
+            if (!owned[bucket]) {
+                buckets.set(bucket, new HashMap<>(buckets.get(bucket)));
+                owned[bucket] = true;
+            }
+            return buckets.get(bucket);
+        }
+    }
+}
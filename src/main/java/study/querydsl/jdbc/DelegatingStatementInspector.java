@@ -0,0 +1,41 @@
+package study.querydsl.jdbc;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Hibernate 에는 StatementInspector 를 하나만 등록할 수 있으므로, 등록된 SqlStatementListener 빈들에게 위임한다.
+ * SQL 은 변경하지 않는다.
+ */
+public class DelegatingStatementInspector implements StatementInspector, SmartInitializingSingleton {
+
+    private final ObjectProvider<SqlStatementListener> listenerProvider;
+    private volatile List<SqlStatementListener> listeners;
+
+    public DelegatingStatementInspector(ObjectProvider<SqlStatementListener> listenerProvider) {
+        this.listenerProvider = listenerProvider;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        this.listeners = listenerProvider.orderedStream().collect(Collectors.toList());
+    }
+
+    @Override
+    public String inspect(String sql) {
+        List<SqlStatementListener> current = listeners;
+        if (current == null) {
+            //컨텍스트 초기화 중(@PostConstruct 등)에 실행되는 SQL
+            listenerProvider.orderedStream().forEach(listener -> listener.onStatement(sql));
+            return sql;
+        }
+        for (SqlStatementListener listener : current) {
+            listener.onStatement(sql);
+        }
+        return sql;
+    }
+}
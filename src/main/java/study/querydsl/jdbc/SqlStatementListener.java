@@ -0,0 +1,10 @@
+package study.querydsl.jdbc;
+
+/**
+ * Hibernate 가 실행하는 모든 SQL 을 통지받는다.
+ * 모든 문장마다 호출되므로 구현은 가볍고 스레드 안전해야 한다.
+ */
+public interface SqlStatementListener {
+
+    void onStatement(String sql);
+}
@@ -0,0 +1,171 @@
+package study.querydsl.jdbc;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 요청(또는 트랜잭션) 단위 SQL 문장 예산. N+1 을 잡기 위해 두 가지를 본다.
+ * - 전체 문장 수가 maxStatements 를 넘는 경우
+ * - 같은 select 문장이 maxRepeatedSelects 번을 넘게 반복되는 경우 (전형적인 N+1)
+ * failOnExceed 면 초과 시점에 예외를 던지고(테스트), 아니면 범위가 끝날 때 문제 쿼리와 함께 경고 로그를 남긴다(운영).
+ *
+ * 범위는 StatementBudgetFilter(HTTP 요청) 또는 open() 으로 열고,
+ * 열린 범위 없이 트랜잭션 안에서 SQL 이 실행되면 트랜잭션 범위를 자동으로 연다.
+ */
+@Slf4j
+@Component
+public class StatementBudget implements SqlStatementListener {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final int maxStatements;
+    private final int maxRepeatedSelects;
+    private final boolean failOnExceed;
+
+    public StatementBudget(@Value("${member.statement-budget.enabled:true}") boolean enabled,
+                           @Value("${member.statement-budget.max-statements:200}") int maxStatements,
+                           @Value("${member.statement-budget.max-repeated-selects:20}") int maxRepeatedSelects,
+                           @Value("${member.statement-budget.fail-on-exceed:false}") boolean failOnExceed) {
+        this.enabled = enabled;
+        this.maxStatements = maxStatements;
+        this.maxRepeatedSelects = maxRepeatedSelects;
+        this.failOnExceed = failOnExceed;
+    }
+
+    public Scope open(String name) {
+        return open(name, maxStatements);
+    }
+
+    public Scope open(String name, int maxStatements) {
+        Scope scope = new Scope(name, maxStatements, CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    @Override
+    public void onStatement(String sql) {
+        if (!enabled) {
+            return;
+        }
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                return;
+            }
+            scope = openTransactionScope();
+        }
+        scope.onStatement(sql);
+    }
+
+    private Scope openTransactionScope() {
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        Scope scope = open("tx " + (name != null ? name : "-"));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                scope.close();
+            }
+        });
+        return scope;
+    }
+
+    public class Scope implements AutoCloseable {
+        private final String name;
+        private final int maxStatements;
+        private final Scope previous;
+        //Hibernate 는 같은 SQL 문자열 인스턴스를 재사용하므로 해시 비용이 거의 없다.
+        private final Map<String, Integer> selectCounts = new HashMap<>();
+        private int statements;
+        private String violation;
+        private boolean closed;
+
+        private Scope(String name, int maxStatements, Scope previous) {
+            this.name = name;
+            this.maxStatements = maxStatements;
+            this.previous = previous;
+        }
+
+        public int getStatements() {
+            return statements;
+        }
+
+        private void onStatement(String sql) {
+            statements++;
+            if (violation == null && statements > maxStatements) {
+                violation = "SQL 문장 수 " + statements + " 건이 예산 " + maxStatements + " 건을 초과했습니다";
+                exceeded();
+            }
+            if (isSelect(sql)) {
+                int repeated = selectCounts.merge(sql, 1, Integer::sum);
+                if (violation == null && repeated > maxRepeatedSelects) {
+                    violation = "같은 select 가 " + repeated + " 번 반복되었습니다(N+1 의심): " + shape(sql);
+                    exceeded();
+                }
+            }
+        }
+
+        private void exceeded() {
+            if (failOnExceed) {
+                throw new StatementBudgetExceededException("[" + name + "] " + violation + "\n" + topShapes());
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (CURRENT.get() == this) {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            }
+            if (violation != null && !failOnExceed) {
+                log.warn("[{}] {} (총 {} 건)\n{}", name, violation, statements, topShapes());
+            }
+        }
+
+        private String topShapes() {
+            return selectCounts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .limit(5)
+                    .map(e -> "  " + e.getValue() + "x " + shape(e.getKey()))
+                    .collect(Collectors.joining("\n"));
+        }
+    }
+
+    private static boolean isSelect(String sql) {
+        return stripComments(sql).regionMatches(true, 0, "select", 0, 6);
+    }
+
+    private static String stripComments(String sql) {
+        String stripped = sql.trim();
+        while (stripped.startsWith("/*")) {
+            int end = stripped.indexOf("*/");
+            if (end < 0) {
+                break;
+            }
+            stripped = stripped.substring(end + 2).trim();
+        }
+        return stripped;
+    }
+
+    /**
+     * 로그용 쿼리 모양. 공백을 정리하고 길이를 제한한다.
+     */
+    static String shape(String sql) {
+        String shape = stripComments(sql).replaceAll("\\s+", " ");
+        return shape.length() > 200 ? shape.substring(0, 200) + "..." : shape;
+    }
+}
@@ -0,0 +1,8 @@
+package study.querydsl.jdbc;
+
+public class StatementBudgetExceededException extends RuntimeException {
+
+    public StatementBudgetExceededException(String message) {
+        super(message);
+    }
+}
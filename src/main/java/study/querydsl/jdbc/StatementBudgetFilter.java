@@ -0,0 +1,31 @@
+package study.querydsl.jdbc;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * HTTP 요청 하나를 SQL 문장 예산 범위로 묶는다.
+ */
+@Component
+public class StatementBudgetFilter extends OncePerRequestFilter {
+
+    private final StatementBudget statementBudget;
+
+    public StatementBudgetFilter(StatementBudget statementBudget) {
+        this.statementBudget = statementBudget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (StatementBudget.Scope ignored = statementBudget.open(request.getMethod() + " " + request.getRequestURI())) {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package study.querydsl.jdbc;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 현재 스레드에서 실행된 SQL 문장 수. 구간 전후의 값을 빼서 구간별 문장 수를 구한다.
+ * 다른 스레드에 넘기는 작업은 wrap 으로 감싸면 작업 스레드의 문장도 넘긴 스레드의 수에 더해진다.
+ * (ParallelQueryExecutor, MemberParallelScanner 가 감싼다.)
+ * 감싸지 않은 스레드에서 실행된 문장은 세지 않는다.
+ */
+@Component
+public class StatementCounter implements SqlStatementListener {
+
+    private static final ThreadLocal<AtomicLong> COUNT = ThreadLocal.withInitial(AtomicLong::new);
+
+    @Override
+    public void onStatement(String sql) {
+        COUNT.get().incrementAndGet();
+    }
+
+    public long current() {
+        return COUNT.get().get();
+    }
+
+    public <T> Callable<T> wrap(Callable<T> task) {
+        AtomicLong count = COUNT.get();
+        return () -> {
+            AtomicLong previous = COUNT.get();
+            COUNT.set(count);
+            try {
+                return task.call();
+            } finally {
+                COUNT.set(previous);
+            }
+        };
+    }
+
+    public Runnable wrap(Runnable task) {
+        AtomicLong count = COUNT.get();
+        return () -> {
+            AtomicLong previous = COUNT.get();
+            COUNT.set(count);
+            try {
+                task.run();
+            } finally {
+                COUNT.set(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import study.querydsl.cache.MemberSearchCache;
+
+/**
+ * 검색 결과 캐시 카운터를 metrics 엔드포인트로 노출한다.
+ */
+@Component
+public class MemberSearchCacheMetrics implements MeterBinder {
+
+    private final MemberSearchCache searchCache;
+
+    public MemberSearchCacheMetrics(MemberSearchCache searchCache) {
+        this.searchCache = searchCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("member.search.cache.requests", searchCache, cache -> cache.getStats().getHits())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("member.search.cache.requests", searchCache, cache -> cache.getStats().getMisses())
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("member.search.cache.evictions", searchCache, cache -> cache.getStats().getEvictions())
+                .register(registry);
+        Gauge.builder("member.search.cache.size", searchCache, cache -> cache.getStats().getSize())
+                .register(registry);
+    }
+}
@@ -0,0 +1,129 @@
+package study.querydsl.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberCursorPage;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.jdbc.StatementCounter;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 리포지토리 메서드(논리적 연산) 단위로 지연시간 히스토그램, 반환 건수, 실행한 SQL 문장 수를 기록한다.
+ * 태그: method(클래스.메서드), condition(값이 채워진 MemberSearchCondition 필드), outcome
+ * /actuator/metrics/member.repository.query 등으로 조회한다.
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    private final MeterRegistry registry;
+    private final StatementCounter statementCounter;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsAspect(MeterRegistry registry, StatementCounter statementCounter) {
+        this.registry = registry;
+        this.statementCounter = statementCounter;
+    }
+
+    @Around("execution(public * study.querydsl.repository.MemberJpaRepository.*(..))"
+            + " || execution(public * study.querydsl.repository.MemberRepositoryImpl.*(..))")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+        String condition = conditionTag(joinPoint.getArgs());
+
+        long statementsBefore = statementCounter.current();
+        long start = System.nanoTime();
+        String outcome = "success";
+        Object result = null;
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } catch (Throwable e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            String outcomeTag = outcome;
+            Meters m = meters.computeIfAbsent(method + '|' + condition + '|' + outcomeTag,
+                    key -> new Meters(registry, method, condition, outcomeTag));
+            m.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            m.statements.record(statementCounter.current() - statementsBefore);
+            long rows = rows(result);
+            if (rows >= 0) {
+                m.rows.record(rows);
+            }
+        }
+    }
+
+    private static String conditionTag(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof MemberSearchCondition) {
+                MemberSearchCondition condition = (MemberSearchCondition) arg;
+                StringJoiner joiner = new StringJoiner(",");
+                if (StringUtils.hasText(condition.getUsername())) joiner.add("username");
+                if (StringUtils.hasText(condition.getTeamName())) joiner.add("teamName");
+                if (condition.getAgeGoe() != null) joiner.add("ageGoe");
+                if (condition.getAgeLoe() != null) joiner.add("ageLoe");
+                return joiner.length() == 0 ? "empty" : joiner.toString();
+            }
+        }
+        return "none";
+    }
+
+    /**
+     * 반환 건수. 건수를 알 수 없는 반환 타입이면 -1
+     */
+    private static long rows(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof MemberCursorPage) {
+            return ((MemberCursorPage) result).getContent().size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Long) {
+            //streamByBuilder 처럼 전달한 건수를 반환하는 메서드
+            return (Long) result;
+        }
+        return -1;
+    }
+
+    private static class Meters {
+        private final Timer latency;
+        private final DistributionSummary rows;
+        private final DistributionSummary statements;
+
+        private Meters(MeterRegistry registry, String method, String condition, String outcome) {
+            this.latency = Timer.builder("member.repository.query")
+                    .description("리포지토리 연산 지연시간")
+                    .tags("method", method, "condition", condition, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.rows = DistributionSummary.builder("member.repository.rows")
+                    .description("리포지토리 연산 반환 건수")
+                    .tags("method", method, "condition", condition, "outcome", outcome)
+                    .register(registry);
+            this.statements = DistributionSummary.builder("member.repository.statements")
+                    .description("리포지토리 연산 중 실행한 JDBC 문장 수")
+                    .tags("method", method, "condition", condition, "outcome", outcome)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.hibernate.HibernateQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.cache.MemberDataVersion;
+import study.querydsl.dto.BatchResult;
+import study.querydsl.dto.MemberRow;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.MemberChange;
+import study.querydsl.event.MemberChangeDispatcher;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 회원 전체를 훑는 야간 작업용 배치 처리. (나이 재계산, 팀 재배정 등)
+ * StatelessSession 으로 읽으므로 영속성 컨텍스트, dirty checking, 2차 캐시를 거치지 않는다.
+ *
+ * member_id 순으로 commitInterval 건씩 청크를 나눠(keyset) 청크마다 트랜잭션을 커밋한다.
+ * 청크 안에서는 forward-only 커서로 한 행씩 읽어 action 에 넘기고, 바뀐 행만 JDBC batch update 로 보낸다.
+ * 행 객체 하나를 재사용하므로 힙 사용량은 처리 건수와 무관하다.
+ *
+ * 청크마다 커밋하므로 트랜잭션 밖에서 호출해야 한다. 실패하면 그 청크만 롤백되고 앞선 청크는 남는다.
+ * SQL 을 직접 실행하므로 바뀐 행이 있는 청크를 커밋할 때마다 2차 캐시와 데이터 버전을 직접 무효화하고,
+ * 읽기 모델에는 바뀐 행마다 이전 값의 MEMBER_REMOVED 와 새 값의 MEMBER_ADDED 를 알린다.
+ */
+@Slf4j
+@Repository
+public class MemberBatchRepository {
+
+    private static final String UPDATE_MEMBER = "update member set username = ?, age = ?, team_id = ? where member_id = ?";
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final MemberDataVersion dataVersion;
+    private final MemberChangeDispatcher changeDispatcher;
+    private final int defaultCommitInterval;
+    private final int fetchSize;
+
+    public MemberBatchRepository(EntityManagerFactory entityManagerFactory,
+                                 MemberDataVersion dataVersion,
+                                 MemberChangeDispatcher changeDispatcher,
+                                 @Value("${member.batch.commit-interval:1000}") int defaultCommitInterval,
+                                 @Value("${member.batch.fetch-size:500}") int fetchSize) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.dataVersion = dataVersion;
+        this.changeDispatcher = changeDispatcher;
+        this.defaultCommitInterval = defaultCommitInterval;
+        this.fetchSize = fetchSize;
+    }
+
+    public BatchResult process(MemberSearchCondition condition, Consumer<MemberRow> action) {
+        return process(condition, defaultCommitInterval, action);
+    }
+
+    /**
+     * condition 에 맞는 회원을 member_id 순으로 action 에 넘긴다.
+     * action 은 넘겨받은 행의 이름/나이/팀을 바꿀 수 있고, 바뀐 행만 update 한다.
+     */
+    public BatchResult process(MemberSearchCondition condition, int commitInterval, Consumer<MemberRow> action) {
+        if (commitInterval < 1) {
+            throw new IllegalArgumentException("commitInterval 은 1 이상이어야 합니다: " + commitInterval);
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("청크마다 커밋하므로 트랜잭션 밖에서 호출해야 합니다");
+        }
+
+        int jdbcBatchSize = Math.max(1, sessionFactory.getSessionFactoryOptions().getJdbcBatchSize());
+        BatchResult result = new BatchResult();
+        long started = System.nanoTime();
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            MemberRow row = new MemberRow();
+            Long lastId = null;
+            while (true) {
+                Chunk chunk = new Chunk();
+                Transaction transaction = session.beginTransaction();
+                try {
+                    processChunk(session, condition, lastId, commitInterval, jdbcBatchSize, row, action, chunk);
+                    transaction.commit();
+                } catch (RuntimeException e) {
+                    if (transaction.isActive()) {
+                        transaction.rollback();
+                    }
+                    throw e;
+                }
+                if (chunk.read == 0) {
+                    break;
+                }
+                result.addChunk(chunk.read, chunk.updated);
+                if (chunk.updated > 0) {
+                    invalidate(chunk);
+                }
+                if (chunk.read < commitInterval) {
+                    break;
+                }
+                lastId = chunk.lastId;
+            }
+        } finally {
+            session.close();
+            result.finish(System.nanoTime() - started);
+        }
+        log.info("member batch: {} rows read, {} updated, {} commits, {} rows/s",
+                result.getRowsRead(), result.getRowsUpdated(), result.getCommits(), (long) result.getRowsPerSecond());
+        return result;
+    }
+
+    /**
+     * 커밋한 청크는 배치가 끝나기 전에도 보이므로, 청크마다 바뀐 회원과 팀 이동이 있는 팀의 2차 캐시,
+     * 검색 결과 캐시를 무효화하고 읽기 모델에 바뀐 행을 알린다.
+     */
+    private void invalidate(Chunk chunk) {
+        Cache cache = sessionFactory.getCache();
+        for (MemberChange change : chunk.changes) {
+            if (change.getType() == MemberChange.Type.MEMBER_REMOVED) {
+                cache.evictEntityData(Member.class, change.getMemberId());
+            }
+        }
+        for (Long teamId : chunk.movedTeamIds) {
+            cache.evictCollectionData(Team.class.getName() + ".members", teamId);
+        }
+        dataVersion.bump();
+        changeDispatcher.publish(chunk.changes);
+    }
+
+    private void processChunk(StatelessSession session, MemberSearchCondition condition, Long lastId,
+                              int commitInterval, int jdbcBatchSize, MemberRow row, Consumer<MemberRow> action,
+                              Chunk chunk) {
+        HibernateQuery<Tuple> query = new HibernateQuery<Void>(session)
+                .select(member.id, member.username, member.age, member.team.id)
+                .from(member);
+        if (MemberSearchPredicates.requiresTeam(condition)) {
+            query.join(member.team, team);
+        }
+        query.where(MemberSearchPredicates.of(condition))
+                .where(lastId != null ? member.id.gt(lastId) : null)
+                .orderBy(member.id.asc())
+                .limit(commitInterval)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true);
+
+        //커서를 연 커넥션(같은 트랜잭션)에서 update 를 보낸다.
+        Connection connection = ((SharedSessionContractImplementor) session)
+                .getJdbcCoordinator().getLogicalConnection().getPhysicalConnection();
+        ScrollableResults rows = query.scroll(ScrollMode.FORWARD_ONLY);
+        try (PreparedStatement update = connection.prepareStatement(UPDATE_MEMBER)) {
+            int pending = 0;
+            while (rows.next()) {
+                //Querydsl 이 행마다 Tuple 하나로 묶어서 돌려준다.
+                Tuple tuple = (Tuple) rows.get(0);
+                row.load(tuple.get(member.id), tuple.get(member.username), tuple.get(member.age), tuple.get(member.team.id));
+                action.accept(row);
+                chunk.read++;
+                chunk.lastId = row.getId();
+                if (!row.isChanged()) {
+                    continue;
+                }
+                update.setString(1, row.getUsername());
+                update.setInt(2, row.getAge());
+                if (row.getTeamId() != null) {
+                    update.setLong(3, row.getTeamId());
+                } else {
+                    update.setNull(3, Types.BIGINT);
+                }
+                update.setLong(4, row.getId());
+                update.addBatch();
+                chunk.updated++;
+                chunk.changes.add(MemberChange.memberRemoved(row.getId(), row.getOriginalAge(), row.getOriginalTeamId()));
+                chunk.changes.add(MemberChange.memberAdded(row.getId(), row.getUsername(), row.getAge(), row.getTeamId()));
+                if (!Objects.equals(row.getTeamId(), row.getOriginalTeamId())) {
+                    if (row.getOriginalTeamId() != null) {
+                        chunk.movedTeamIds.add(row.getOriginalTeamId());
+                    }
+                    if (row.getTeamId() != null) {
+                        chunk.movedTeamIds.add(row.getTeamId());
+                    }
+                }
+                if (++pending == jdbcBatchSize) {
+                    update.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                update.executeBatch();
+            }
+        } catch (SQLException e) {
+            throw sessionFactory.getJdbcServices().getSqlExceptionHelper().convert(e, "member batch update", UPDATE_MEMBER);
+        } finally {
+            rows.close();
+        }
+    }
+
+    private static final class Chunk {
+        private long read;
+        private long updated;
+        private long lastId;
+        //커밋한 뒤에 알릴 변경. 청크 크기(commitInterval)만큼만 쌓인다.
+        private final List<MemberChange> changes = new ArrayList<>();
+        private final Set<Long> movedTeamIds = new HashSet<>();
+    }
+}
@@ -0,0 +1,226 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Cache;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.BulkResult;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.event.MemberChange;
+import study.querydsl.event.MemberChangeDispatcher;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 대량 update/delete 를 조건에 맞는 회원의 member_id 순 청크(keyset)로 나눠 청크마다 커밋한다.
+ * 한 문장으로 전체를 바꾸면 락을 오래 잡고 undo 로그가 커지므로, 청크 크기만큼씩 끊어서 실행한다.
+ * 청크는 실제로 맞는 id 로 정하므로 id 가 듬성듬성해도 빈 청크(트랜잭션)가 생기지 않는다.
+ *
+ * 청크마다 독립적으로 커밋해야 하므로 트랜잭션 밖에서 호출해야 한다. (비울 영속성 컨텍스트도 없다)
+ * 2차 캐시의 Member 와 Team.members 는 Hibernate 가 벌크 문장마다 비우고(BulkOperationCleanupAction),
+ * 검색 결과 캐시는 MemberDataVersion 이 update/delete 문장을 보고 무효화한다.
+ * 엔티티 이벤트는 발생하지 않으므로 읽기 모델(팀 통계 등)에는 바뀐 팀을 직접 알린다.
+ */
+@Repository
+public class MemberBulkRepository {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate chunkTransaction;
+    private final TransactionTemplate transaction;
+    private final MemberChangeDispatcher changeDispatcher;
+    private final int defaultChunkSize;
+
+    public MemberBulkRepository(EntityManager em,
+                                PlatformTransactionManager transactionManager,
+                                MemberChangeDispatcher changeDispatcher,
+                                @Value("${member.bulk.chunk-size:1000}") int defaultChunkSize) {
+        this.em = em;
+        this.changeDispatcher = changeDispatcher;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.defaultChunkSize = defaultChunkSize;
+    }
+
+    public BulkResult addAgeByTeam(String teamName, int delta) {
+        return addAgeByTeam(teamName, delta, defaultChunkSize);
+    }
+
+    /**
+     * teamName 팀 회원의 나이를 delta 만큼 더한다.
+     */
+    public BulkResult addAgeByTeam(String teamName, int delta, int chunkSize) {
+        List<Long> teamIds = queryFactory
+                .select(team.id)
+                .from(team)
+                .where(team.name.eq(teamName))
+                .fetch();
+        if (teamIds.isEmpty()) {
+            return new BulkResult();
+        }
+        BooleanExpression predicate = member.team.id.in(teamIds);
+        return executeInChunks(predicate, teamIds, chunkSize, range -> queryFactory
+                .update(member)
+                .set(member.age, member.age.add(delta))
+                .where(range, predicate)
+                .execute());
+    }
+
+    public BulkResult deleteByAgeLessThan(int age) {
+        return deleteByAgeLessThan(age, defaultChunkSize);
+    }
+
+    public BulkResult deleteByAgeLessThan(int age, int chunkSize) {
+        BooleanExpression predicate = member.age.lt(age);
+        return executeInChunks(predicate, null, chunkSize, range -> queryFactory
+                .delete(member)
+                .where(range, predicate)
+                .execute());
+    }
+
+    /**
+     * fromTeamId 팀에서 condition(회원 이름/나이)에 맞는 회원을 toTeamId 팀으로 옮긴다.
+     * update 한 문장으로 처리하므로 회원을 로딩하지 않는다. 호출한 쪽 트랜잭션이 있으면 거기에 참여한다.
+     *
+     * 벌크 update 는 영속성 컨텍스트를 거치지 않으므로 끝나면
+     * - 영속성 컨텍스트에 있는 원래 팀 회원을 refresh 해서 Member.team 을 맞추고
+     * - 두 팀의 Team.members 가 초기화돼 있으면 팀을 refresh 해서 다시 읽게 하고
+     * - 2차 캐시의 Member 와 두 팀의 Team.members 를 비우고
+     * - 읽기 모델에 두 팀을 알린다. (트랜잭션 안이면 커밋 후 전달)
+     *
+     * @return 옮긴 회원 수
+     */
+    public long moveMembers(Long fromTeamId, Long toTeamId, MemberSearchCondition condition) {
+        if (fromTeamId == null || toTeamId == null) {
+            throw new IllegalArgumentException("fromTeamId 와 toTeamId 가 필요합니다");
+        }
+        if (StringUtils.hasText(condition.getTeamName())) {
+            //update 문은 team 을 조인할 수 없고, 원래 팀은 fromTeamId 로 정한다.
+            throw new IllegalArgumentException("teamName 조건은 쓸 수 없습니다: " + condition.getTeamName());
+        }
+        if (fromTeamId.equals(toTeamId)) {
+            return 0;
+        }
+
+        Long rows = transaction.execute(status -> {
+            Team toTeam = em.getReference(Team.class, toTeamId);
+            //영속성 컨텍스트의 변경을 먼저 반영해야 update 가 최신 이름/나이로 대상을 고른다.
+            em.flush();
+            long moved = queryFactory
+                    .update(member)
+                    .set(member.team, toTeam)
+                    .where(member.team.id.eq(fromTeamId),
+                            MemberSearchPredicates.usernameEq(condition.getUsername()),
+                            MemberSearchPredicates.ageGoe(condition.getAgeGoe()),
+                            MemberSearchPredicates.ageLoe(condition.getAgeLoe()))
+                    .execute();
+            if (moved > 0) {
+                syncPersistenceContext(fromTeamId, toTeamId);
+                Cache cache = em.getEntityManagerFactory().getCache().unwrap(Cache.class);
+                cache.evictEntityData(Member.class);
+                cache.evictCollectionData(Team.class.getName() + ".members", fromTeamId);
+                cache.evictCollectionData(Team.class.getName() + ".members", toTeamId);
+                changeDispatcher.publish(MemberChange.invalidated(List.of(fromTeamId, toTeamId)));
+            }
+            return moved;
+        });
+        return rows != null ? rows : 0;
+    }
+
+    /**
+     * 영속성 컨텍스트에 남아 있는 관련 엔티티만 DB 상태로 다시 읽는다. (보통 몇 건이므로 건별 select 로 충분하다)
+     */
+    private void syncPersistenceContext(Long fromTeamId, Long toTeamId) {
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        //refresh 중에도 컨텍스트가 바뀔 수 있으므로 복사본을 돌려주는 reentrantSafeEntityEntries 로 순회한다.
+        for (Map.Entry<Object, EntityEntry> entry : em.unwrap(SessionImplementor.class)
+                .getPersistenceContext().reentrantSafeEntityEntries()) {
+            Object entity = entry.getKey();
+            if (entity instanceof Member) {
+                Team current = ((Member) entity).getTeam();
+                //프록시의 id 는 초기화 없이 읽는다.
+                if (current != null && Objects.equals(util.getIdentifier(current), fromTeamId)) {
+                    em.refresh(entity);
+                }
+            } else if (entity instanceof Team) {
+                Team team = (Team) entity;
+                if ((fromTeamId.equals(team.getId()) || toTeamId.equals(team.getId()))
+                        && Hibernate.isInitialized(team.getMembers())) {
+                    em.refresh(team);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param affectedTeamIds 바뀔 수 있는 팀. null 이면 모든 팀
+     */
+    private BulkResult executeInChunks(BooleanExpression predicate, Collection<Long> affectedTeamIds, int chunkSize,
+                                       Function<BooleanExpression, Long> statement) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize 는 1 이상이어야 합니다: " + chunkSize);
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("청크마다 커밋하므로 트랜잭션 밖에서 호출해야 합니다");
+        }
+
+        BulkResult result = new BulkResult();
+        try {
+            Long lastId = null;
+            while (true) {
+                Long afterId = lastId;
+                List<Long> ids = new ArrayList<>();
+                Long rows = chunkTransaction.execute(status -> {
+                    ids.addAll(queryFactory
+                            .select(member.id)
+                            .from(member)
+                            .where(predicate, afterId != null ? member.id.gt(afterId) : null)
+                            .orderBy(member.id.asc())
+                            .limit(chunkSize)
+                            .fetch());
+                    if (ids.isEmpty()) {
+                        return 0L;
+                    }
+                    return statement.apply(member.id.between(ids.get(0), ids.get(ids.size() - 1)));
+                });
+                if (ids.isEmpty()) {
+                    break;
+                }
+                lastId = ids.get(ids.size() - 1);
+                result.add(ids.get(0), lastId, rows != null ? rows : 0);
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+            }
+        } finally {
+            //중간에 실패해도 이미 커밋된 청크가 있으므로 항상 알린다.
+            changeDispatcher.publish(affectedTeamIds != null
+                    ? MemberChange.invalidated(affectedTeamIds)
+                    : MemberChange.invalidatedAll());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package study.querydsl.repository;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * 읽기 전용 DTO 검색을 하이버네이트 없이 JDBC 로 실행한다.
+ * HQL 변환, 엔티티 메타데이터, 영속성 컨텍스트를 거치지 않고 ResultSet 을 컬럼 순번으로 바로 MemberTeamDto 에 담는다.
+ * SQL 은 MemberJpaRepository.searchByBuilder 가 만드는 것과 같은 조인/조건이다. (MemberSearchPredicates.joinTeam)
+ *
+ * 트랜잭션 안에서 호출하면 같은 커넥션을 쓰지만, flush 되지 않은 엔티티 변경은 보지 못하므로
+ * 호출하는 쪽(MemberJpaRepository)에서 먼저 flush 한다.
+ * StatementInspector 를 거치지 않으므로 MemberDataVersion/StatementBudget 에는 집계되지 않는다.
+ */
+@Repository
+public class MemberJdbcRepository {
+
+    private static final String SELECT = "select m.member_id, m.username, m.age, t.team_id, t.name"
+            + " from member m ";
+    private static final String INNER_JOIN_TEAM = "inner join team t on m.team_id = t.team_id";
+    private static final String LEFT_JOIN_TEAM = "left outer join team t on m.team_id = t.team_id";
+    //JPA 경로(searchByBuilder)와 같은 순서
+    private static final String ORDER_BY = " order by m.member_id";
+
+    private static final RowMapper<MemberTeamDto> MEMBER_TEAM_MAPPER = (rs, rowNum) -> new MemberTeamDto(
+            rs.getLong(1),
+            rs.getString(2),
+            rs.getInt(3),
+            //팀이 없는 회원은 team_id 가 null 이다.
+            rs.getObject(4, Long.class),
+            rs.getString(5));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public MemberJdbcRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        StringJoiner where = new StringJoiner(" and ", " where ", "").setEmptyValue("");
+
+        if (StringUtils.hasText(condition.getUsername())) {
+            where.add("m.username = :username");
+            parameters.addValue("username", condition.getUsername());
+        }
+        if (StringUtils.hasText(condition.getTeamName())) {
+            where.add("t.name = :teamName");
+            parameters.addValue("teamName", condition.getTeamName());
+        }
+        if (condition.getAgeGoe() != null) {
+            where.add("m.age >= :ageGoe");
+            parameters.addValue("ageGoe", condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            where.add("m.age <= :ageLoe");
+            parameters.addValue("ageLoe", condition.getAgeLoe());
+        }
+
+        String join = MemberSearchPredicates.requiresTeam(condition) ? INNER_JOIN_TEAM : LEFT_JOIN_TEAM;
+        return jdbcTemplate.query(SELECT + join + where + ORDER_BY, parameters, MEMBER_TEAM_MAPPER);
+    }
+}
@@ -1,24 +1,47 @@
 package study.querydsl.repository;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
+import study.querydsl.cache.MemberSearchCache;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.MemberTeamField;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+import study.querydsl.index.MemberSearchIndex;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static study.querydsl.entity.QMember.*;
 import static study.querydsl.entity.QTeam.*;
@@ -28,16 +51,68 @@ import static study.querydsl.entity.QTeam.*;
 public class MemberJpaRepository {
     private final EntityManager em;
     private final JPAQueryFactory jpaQueryFactory;
+    private final MemberSearchCache searchCache;
+    private final MemberSearchIndex searchIndex;
+    private final MemberJdbcRepository memberJdbcRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int batchSize;
+    private final boolean cacheFindByUsername;
 
-    public MemberJpaRepository(EntityManager entityManager){
+    public MemberJpaRepository(EntityManager entityManager,
+                               MemberSearchCache searchCache,
+                               ObjectProvider<MemberSearchIndex> searchIndex,
+                               MemberJdbcRepository memberJdbcRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int batchSize,
+                               @Value("${member.query-cache.find-by-username:false}") boolean cacheFindByUsername){
         this.em = entityManager;
         jpaQueryFactory = new JPAQueryFactory(this.em);
+        this.searchCache = searchCache;
+        this.searchIndex = searchIndex.getIfAvailable();
+        this.memberJdbcRepository = memberJdbcRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.batchSize = batchSize;
+        this.cacheFindByUsername = cacheFindByUsername;
     }
 
     public void save(Member member){
         em.persist(member);
     }
 
+    /**
+     * JDBC batch 크기 단위로 flush 하고, 그동안 저장한 엔티티만 영속성 컨텍스트에서 분리(detach)한다.
+     * 호출한 쪽 트랜잭션이 이미 관리하던 다른 엔티티는 그대로 남는다. 저장한 엔티티는 이후 변경해도 반영되지 않는다.
+     * 연관된 Team 은 미리 저장되어 있어야 한다.
+     */
+    @Transactional
+    public void saveAll(Collection<Member> members){
+        persistInChunks(members);
+    }
+
+    @Transactional
+    public void saveAllTeams(Collection<Team> teams){
+        persistInChunks(teams);
+    }
+
+    private void persistInChunks(Collection<?> entities){
+        List<Object> chunk = new ArrayList<>(Math.min(entities.size(), batchSize));
+        for (Object entity : entities) {
+            em.persist(entity);
+            chunk.add(entity);
+            if (chunk.size() == batchSize) {
+                flushAndDetach(chunk);
+            }
+        }
+        flushAndDetach(chunk);
+    }
+
+    private void flushAndDetach(List<Object> chunk){
+        em.flush();
+        chunk.forEach(em::detach);
+        chunk.clear();
+    }
+
     public Optional<Member> findById(Long id){
         Member member = em.find(Member.class, id);
         return Optional.ofNullable(member);
@@ -50,6 +125,7 @@ public class MemberJpaRepository {
         return em.createQuery("select m from Member m", Member.class)
                 .getResultList();
     }
+    @Transactional(readOnly = true)
     public List<Member> findAll_Querydsl(){
         return jpaQueryFactory
                 .select(member)
@@ -59,20 +135,88 @@ public class MemberJpaRepository {
 
 
 
+    /**
+     * Member 와 Team 을 fetch join 으로 한 번에 조회한다. (ToOne 관계라 결과 행이 늘어나지 않는다.)
+     */
+    public List<Member> findAllWithTeam(){
+        return jpaQueryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .orderBy(member.id.asc())
+                .fetch();
+    }
+
+    public List<Member> searchMembersWithTeam(MemberSearchCondition condition){
+        return MemberSearchPredicates.joinTeam(jpaQueryFactory
+                .selectFrom(member), condition).fetchJoin()
+                .where(MemberSearchPredicates.of(condition))
+                .orderBy(member.id.asc())
+                .fetch();
+    }
+
+    /**
+     * Team.members 는 컬렉션이라 fetch join 하면 결과 행이 회원 수만큼 늘어난다.
+     * 대신 팀만 조회한 뒤 default_batch_fetch_size 단위의 IN 쿼리로 members 를 초기화한다.
+     * (1 + 팀 수 / batch size) 번의 쿼리로 끝난다.
+     */
+    @Transactional(readOnly = true)
+    public List<Team> findAllTeamsWithMembers(){
+        List<Team> teams = jpaQueryFactory
+                .selectFrom(team)
+                .orderBy(team.id.asc())
+                .fetch();
+        for (Team findTeam : teams) {
+            Hibernate.initialize(findTeam.getMembers());
+        }
+        return teams;
+    }
+
     public List<Member> findByUsername(String username){
         return em.createQuery("select m from Member m where m.username =:username", Member.class)
                 .setParameter("username", username)
+                .setHint(QueryHints.CACHEABLE, cacheFindByUsername)
                 .getResultList();
     }
+    @Transactional(readOnly = true)
     public List<Member> findByUsername_Querydsl(String username){
         return jpaQueryFactory
                 .select(member)
                 .from(member)
                 .where(member.username.eq(username))
+                .setHint(QueryHints.CACHEABLE, cacheFindByUsername)
                 .fetch();
     }
 
+    /**
+     * 검색 인덱스가 켜져 있고 답할 수 있는 조건이면 트랜잭션 없이 인덱스로 답하고, 아니면 캐시/DB 로 조회한다.
+     * 어느 경로든 결과는 member_id 순이다.
+     */
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition){
+        if (searchIndex != null) {
+            List<MemberTeamDto> indexed = searchIndex.search(condition);
+            if (indexed != null) {
+                return indexed;
+            }
+        }
+        return readOnlyTransaction.execute(status -> searchCache.get(condition, () -> searchByBuilderQuery(condition)));
+    }
+
+    /**
+     * engine 으로 실행 방식을 고른다. JDBC 는 검색 인덱스/캐시를 거치지 않고 매번 DB 를 조회한다.
+     */
+    public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition, SearchEngine engine){
+        if (engine == SearchEngine.JPA) {
+            return searchByBuilder(condition);
+        }
+        //같은 트랜잭션의 아직 flush 되지 않은 변경도 보이도록 JPA 조회(auto flush)와 맞춘다.
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && em.unwrap(Session.class).isDirty()) {
+            em.flush();
+        }
+        return memberJdbcRepository.searchByBuilder(condition);
+    }
+
+    private List<MemberTeamDto> searchByBuilderQuery(MemberSearchCondition condition){
         BooleanBuilder builder = new BooleanBuilder();
 
         if (StringUtils.hasText(condition.getUsername())) {
@@ -88,20 +232,171 @@ public class MemberJpaRepository {
         }
 
         if (condition.getAgeLoe() != null){
-            builder.and(member.age.goe(condition.getAgeLoe()));
+            builder.and(member.age.loe(condition.getAgeLoe()));
         }
 
-        return jpaQueryFactory
+        return MemberSearchPredicates.joinTeam(jpaQueryFactory
                 .select(new QMemberTeamDto(
                         member.id       .as("memberId"),
                         member.username .as("username"),
                         member.age      .as("age"),
                         team.id         .as("teamId"),
                         team.name       .as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
+                .from(member), condition)
                 .where(builder)
+                .orderBy(member.id.asc())
                 .fetch();
 
     }
+
+    /**
+     * fields 로 고른 컬럼만 조회한다. 고르지 않은 필드는 null(age 는 0)로 남는다.
+     * 결과는 searchByBuilder 와 같이 member_id 순이다.
+     * team 조인은 TEAM_NAME 을 고르거나 팀 조건이 있을 때만 한다. (TEAM_ID 는 member.team_id 로 조인 없이 읽는다)
+     */
+    @Transactional(readOnly = true)
+    public List<MemberTeamDto> searchFields(MemberSearchCondition condition, Set<MemberTeamField> fields){
+        if (fields == null || fields.isEmpty()) {
+            throw new IllegalArgumentException("조회할 필드를 하나 이상 지정해야 합니다");
+        }
+        List<MemberTeamField> selected = new ArrayList<>(EnumSet.copyOf(fields));
+        Expression<?>[] columns = selected.stream()
+                .map(MemberJpaRepository::column)
+                .toArray(Expression[]::new);
+
+        JPAQuery<Tuple> query = jpaQueryFactory.select(columns).from(member);
+        if (selected.contains(MemberTeamField.TEAM_NAME) || MemberSearchPredicates.requiresTeam(condition)) {
+            query = MemberSearchPredicates.joinTeam(query, condition);
+        }
+        List<Tuple> rows = query
+                .where(MemberSearchPredicates.of(condition))
+                .orderBy(member.id.asc())
+                .fetch();
+
+        List<MemberTeamDto> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            MemberTeamDto dto = new MemberTeamDto();
+            for (int i = 0; i < selected.size(); i++) {
+                Object value = row.get(i, Object.class);
+                switch (selected.get(i)) {
+                    case MEMBER_ID:
+                        dto.setMemberId((Long) value);
+                        break;
+                    case USERNAME:
+                        dto.setUsername((String) value);
+                        break;
+                    case AGE:
+                        dto.setAge((Integer) value);
+                        break;
+                    case TEAM_ID:
+                        dto.setTeamId((Long) value);
+                        break;
+                    case TEAM_NAME:
+                        dto.setTeamName((String) value);
+                        break;
+                }
+            }
+            result.add(dto);
+        }
+        return result;
+    }
+
+    private static Expression<?> column(MemberTeamField field) {
+        switch (field) {
+            case MEMBER_ID:
+                return member.id;
+            case USERNAME:
+                return member.username;
+            case AGE:
+                return member.age;
+            case TEAM_ID:
+                return member.team.id;
+            case TEAM_NAME:
+                return team.name;
+            default:
+                throw new IllegalArgumentException("지원하지 않는 필드입니다: " + field);
+        }
+    }
+
+    /**
+     * 커서(seek) 방식 페이징.
+     * offset 대신 마지막으로 조회한 member.id 이후부터 size 건을 조회하므로 페이지 깊이와 무관하게 비용이 일정하다.
+     */
+    @Transactional(readOnly = true)
+    public MemberCursorPage searchByCursor(MemberSearchCondition condition, String cursor, int size){
+        if (size < 1) {
+            throw new IllegalArgumentException("size 는 1 이상이어야 합니다: " + size);
+        }
+        Long lastMemberId = MemberCursorPage.decodeCursor(cursor);
+
+        //다음 페이지 존재 여부 확인을 위해 한 건 더 조회
+        List<MemberTeamDto> content = MemberSearchPredicates.joinTeam(jpaQueryFactory
+                .select(new QMemberTeamDto(
+                        member.id       .as("memberId"),
+                        member.username .as("username"),
+                        member.age      .as("age"),
+                        team.id         .as("teamId"),
+                        team.name       .as("teamName")))
+                .from(member), condition)
+                .where(memberIdGt(lastMemberId))
+                .where(MemberSearchPredicates.of(condition))
+                .orderBy(member.id.asc())
+                .limit(size + 1)
+                .fetch();
+
+        if (content.size() <= size) {
+            return new MemberCursorPage(content, null);
+        }
+        List<MemberTeamDto> page = content.subList(0, size);
+        return new MemberCursorPage(page, MemberCursorPage.encodeCursor(page.get(size - 1).getMemberId()));
+    }
+
+    /**
+     * 결과 전체를 List 로 만들지 않고 forward-only 커서로 한 건씩 consumer 에 전달한다.
+     * fetchSize 건마다 영속성 컨텍스트를 비워 메모리 사용량을 결과 크기와 무관하게 유지한다.
+     * @return 전달한 건수
+     */
+    @Transactional(readOnly = true)
+    public long streamByBuilder(MemberSearchCondition condition, int fetchSize, Consumer<MemberTeamDto> consumer){
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("fetchSize 는 1 이상이어야 합니다: " + fetchSize);
+        }
+        long count = 0;
+        try (CloseableIterator<MemberTeamDto> iterator = MemberSearchPredicates.joinTeam(jpaQueryFactory
+                .select(new QMemberTeamDto(
+                        member.id       .as("memberId"),
+                        member.username .as("username"),
+                        member.age      .as("age"),
+                        team.id         .as("teamId"),
+                        team.name       .as("teamName")))
+                .from(member), condition)
+                .where(MemberSearchPredicates.of(condition))
+                .orderBy(member.id.asc())
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.READ_ONLY, true)
+                .iterate()) {
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                if (++count % fetchSize == 0) {
+                    em.clear();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * streamByBuilder 로 읽으면서 열 단위 컨테이너에 담는다. (member.id 순)
+     * 행마다 만든 DTO 는 바로 버려지므로 결과 크기만큼의 객체가 힙에 남지 않는다.
+     */
+    @Transactional(readOnly = true)
+    public MemberTeamColumns searchColumns(MemberSearchCondition condition, int fetchSize){
+        MemberTeamColumns.Builder builder = MemberTeamColumns.builder();
+        streamByBuilder(condition, fetchSize, builder::add);
+        return builder.build();
+    }
+
+    private BooleanExpression memberIdGt(Long lastMemberId) {
+        return lastMemberId != null ? member.id.gt(lastMemberId) : null;
+    }
 }
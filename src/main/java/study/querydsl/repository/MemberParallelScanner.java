@@ -0,0 +1,356 @@
+package study.querydsl.repository;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.jdbc.StatementCounter;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 회원 전체 내보내기/집계를 member_id 범위 파티션으로 나눠 병렬로 읽는다.
+ * - 조건에 맞는 member_id 의 [min, max] 를 threads x partitions-per-thread 개의 같은 폭 구간으로 나눈다.
+ *   구간마다 건수가 달라도 파티션이 스레드보다 많으므로 먼저 끝난 스레드가 남은 파티션을 가져간다.
+ * - 파티션마다 제한된 풀의 스레드에서 새 읽기 전용 트랜잭션(=새 EntityManager, 커넥션)으로 forward-only 커서를 연다.
+ * - scan: 파티션이 읽은 행을 제한된 큐로 호출 스레드에 넘긴다. 큐가 차면 읽기를 멈춘다.(backpressure)
+ *   ordered 면 파티션마다 큐를 두고 파티션 순서대로(= member_id 순) 꺼내고, 아니면 큐 하나를 공유해 도착 순서로 꺼낸다.
+ * - reduce: 파티션마다 따로 누적하고 끝나면 파티션 순서대로 합친다. 호출 스레드를 거치지 않으므로 코어 수만큼 확장된다.
+ *
+ * 파티션 하나가 실패하거나 호출 쪽 consumer 가 예외를 던지면 나머지 파티션을 취소한다.
+ * 인터럽트는 H2 파일 채널을 닫을 수 있어서 쓰지 않고, 실행 중인 파티션은 취소 플래그를 보고 다음 행에서 멈춘다.
+ * 스레드마다 커넥션을 하나씩 쓰므로 threads 는 커넥션 풀 크기보다 작아야 한다.
+ * threads 가 0 이면 코어 수와 커넥션 풀 크기의 절반 중 작은 값을 쓰고, 풀 크기 이상이면 시작할 때 실패한다.
+ */
+@Repository
+public class MemberParallelScanner implements DisposableBean {
+
+    private static final Object END = new Object();
+    private static final long POLL_MILLIS = 100;
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ThreadPoolExecutor executor;
+    private final StatementCounter statementCounter;
+    private final int partitionsPerThread;
+    private final int fetchSize;
+    private final int bufferSize;
+
+    public MemberParallelScanner(EntityManager em,
+                                 PlatformTransactionManager transactionManager,
+                                 StatementCounter statementCounter,
+                                 @Value("${member.scan.threads:0}") int threads,
+                                 @Value("${member.scan.partitions-per-thread:4}") int partitionsPerThread,
+                                 @Value("${member.scan.fetch-size:1000}") int fetchSize,
+                                 @Value("${member.scan.buffer-size:1000}") int bufferSize,
+                                 @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maxConnections) {
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        int poolSize = poolSize(threads, Runtime.getRuntime().availableProcessors(), maxConnections);
+        //파티션 수는 호출마다 poolSize x partitionsPerThread 로 제한되므로 대기열은 제한하지 않는다.
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("member-scan-"));
+        this.executor.allowCoreThreadTimeOut(true);
+        this.statementCounter = statementCounter;
+        this.partitionsPerThread = Math.max(1, partitionsPerThread);
+        this.fetchSize = fetchSize;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * condition 에 맞는 회원을 호출 스레드의 consumer 에 넘긴다.
+     *
+     * @param ordered true 면 member_id 순, false 면 읽은 순서
+     * @return 넘긴 건수
+     */
+    public long scan(MemberSearchCondition condition, boolean ordered, Consumer<MemberTeamDto> consumer) {
+        return scan(condition, ordered, fetchSize, consumer);
+    }
+
+    /**
+     * 파티션 커서의 fetch size 를 지정한다.
+     */
+    public long scan(MemberSearchCondition condition, boolean ordered, int fetchSize, Consumer<MemberTeamDto> consumer) {
+        List<long[]> partitions = partitions(condition);
+        if (partitions.isEmpty()) {
+            return 0;
+        }
+
+        Merge merge = new Merge(partitions.size(), ordered, bufferSize);
+        try {
+            for (int i = 0; i < partitions.size(); i++) {
+                int partition = i;
+                long[] range = partitions.get(i);
+                merge.futures.add(executor.submit(statementCounter.wrap(() -> {
+                    try {
+                        scanPartition(condition, range, fetchSize, merge::isCancelled, row -> merge.put(partition, row));
+                        merge.put(partition, END);
+                    } catch (CancellationException e) {
+                        //다른 파티션의 실패나 호출 쪽 예외로 취소됨
+                    } catch (Throwable e) {
+                        merge.fail(e);
+                    }
+                })));
+            }
+            return merge.drain(consumer);
+        } finally {
+            merge.cancel();
+        }
+    }
+
+    /**
+     * 파티션마다 supplier 로 만든 결과에 accumulator 로 누적하고, 파티션 순서대로 combiner 로 합친다.
+     * accumulator 는 파티션 스레드에서 호출되지만 결과 객체는 파티션마다 따로이다.
+     */
+    public <A> A reduce(MemberSearchCondition condition, Supplier<A> supplier,
+                        BiConsumer<A, MemberTeamDto> accumulator, BinaryOperator<A> combiner) {
+        List<long[]> partitions = partitions(condition);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<Future<A>> futures = new ArrayList<>(partitions.size());
+        try {
+            for (long[] range : partitions) {
+                futures.add(executor.submit(statementCounter.wrap(() -> {
+                    A partial = supplier.get();
+                    scanPartition(condition, range, fetchSize, cancelled::get, row -> accumulator.accept(partial, row));
+                    return partial;
+                })));
+            }
+            A result = supplier.get();
+            for (Future<A> future : futures) {
+                result = combiner.apply(result, await(future));
+            }
+            return result;
+        } finally {
+            cancelled.set(true);
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private void scanPartition(MemberSearchCondition condition, long[] range, int fetchSize,
+                               BooleanSupplier cancelled, Consumer<MemberTeamDto> sink) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+        readOnlyTransaction.executeWithoutResult(status -> {
+            long count = 0;
+            try (CloseableIterator<MemberTeamDto> iterator = MemberSearchPredicates.joinTeam(queryFactory
+                    .select(new QMemberTeamDto(
+                            member.id       .as("memberId"),
+                            member.username .as("username"),
+                            member.age      .as("age"),
+                            team.id         .as("teamId"),
+                            team.name       .as("teamName")))
+                    .from(member), condition)
+                    .where(member.id.between(range[0], range[1]))
+                    .where(MemberSearchPredicates.of(condition))
+                    .orderBy(member.id.asc())
+                    .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                    .setHint(QueryHints.READ_ONLY, true)
+                    .iterate()) {
+                while (iterator.hasNext()) {
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException();
+                    }
+                    sink.accept(iterator.next());
+                    if (++count % fetchSize == 0) {
+                        em.clear();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 조건에 맞는 member_id 범위를 같은 폭의 [from, to] 구간으로 나눈다.
+     * 스냅샷이 아니다. 범위는 이 조회 시점에 정해지고 파티션은 각자의 트랜잭션에서 제각각 읽으므로,
+     * 이후 max 보다 큰 id 로 추가된 행은 빠지고, 그 사이 수정/삭제된 행은 파티션마다 반영 여부가 다르다.
+     */
+    private List<long[]> partitions(MemberSearchCondition condition) {
+        Tuple bounds = readOnlyTransaction.execute(status -> MemberSearchPredicates.joinTeam(queryFactory
+                .select(member.id.min(), member.id.max())
+                .from(member), condition)
+                .where(MemberSearchPredicates.of(condition))
+                .fetchOne());
+        Long minId = bounds != null ? bounds.get(member.id.min()) : null;
+        Long maxId = bounds != null ? bounds.get(member.id.max()) : null;
+        List<long[]> partitions = new ArrayList<>();
+        if (minId == null || maxId == null) {
+            return partitions;
+        }
+
+        long count = (long) executor.getMaximumPoolSize() * partitionsPerThread;
+        long width = Math.max(1, (maxId - minId) / count + 1);
+        for (long from = minId; from <= maxId; from += width) {
+            partitions.add(new long[]{from, Math.min(from + width - 1, maxId)});
+        }
+        return partitions;
+    }
+
+    /**
+     * 스캔 스레드가 커넥션 풀을 다 차지하면 다른 요청이 커넥션을 얻지 못하므로 풀 크기보다 작게 제한한다.
+     */
+    static int poolSize(int threads, int processors, int maxConnections) {
+        if (threads <= 0) {
+            return Math.max(1, Math.min(processors, maxConnections / 2));
+        }
+        if (threads >= maxConnections) {
+            throw new IllegalStateException("member.scan.threads(" + threads
+                    + ") 는 커넥션 풀 크기(" + maxConnections + ")보다 작아야 합니다");
+        }
+        return threads;
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("회원 병렬 스캔 대기 중 인터럽트되었습니다", e);
+        } catch (ExecutionException e) {
+            throw propagate(e.getCause());
+        }
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new DataAccessResourceFailureException("회원 병렬 스캔에 실패했습니다", cause);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * scan 한 번의 파티션 큐와 취소/실패 상태.
+     */
+    private static final class Merge {
+        private final List<BlockingQueue<Object>> queues;
+        private final boolean ordered;
+        private final List<Future<?>> futures = new ArrayList<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private volatile boolean cancelled;
+
+        Merge(int partitions, boolean ordered, int bufferSize) {
+            this.ordered = ordered;
+            this.queues = new ArrayList<>(partitions);
+            BlockingQueue<Object> shared = ordered ? null : new ArrayBlockingQueue<>(bufferSize);
+            for (int i = 0; i < partitions; i++) {
+                queues.add(ordered ? new ArrayBlockingQueue<>(bufferSize) : shared);
+            }
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * 큐에 자리가 날 때까지 기다린다. 기다리는 동안 취소되면 CancellationException.
+         */
+        void put(int partition, Object item) {
+            try {
+                while (!queues.get(partition).offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        throw new CancellationException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+        }
+
+        void fail(Throwable e) {
+            failure.compareAndSet(null, e);
+            cancelled = true;
+        }
+
+        void cancel() {
+            cancelled = true;
+            futures.forEach(future -> future.cancel(false));
+        }
+
+        long drain(Consumer<MemberTeamDto> consumer) {
+            long count = 0;
+            if (ordered) {
+                //앞 파티션이 먼저 제출되므로, 꺼내려는 파티션은 항상 이미 실행 중이거나 끝났다.
+                for (BlockingQueue<Object> queue : queues) {
+                    for (Object item = take(queue); item != END; item = take(queue)) {
+                        consumer.accept((MemberTeamDto) item);
+                        count++;
+                    }
+                }
+                return count;
+            }
+            for (int finished = 0; finished < queues.size(); ) {
+                Object item = take(queues.get(0));
+                if (item == END) {
+                    finished++;
+                } else {
+                    consumer.accept((MemberTeamDto) item);
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private Object take(BlockingQueue<Object> queue) {
+            try {
+                while (true) {
+                    Throwable cause = failure.get();
+                    if (cause != null) {
+                        throw propagate(cause);
+                    }
+                    Object item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (item != null) {
+                        return item;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DataAccessResourceFailureException("회원 병렬 스캔 대기 중 인터럽트되었습니다", e);
+            }
+        }
+    }
+}
@@ -1,2 +1,21 @@
-package study.querydsl.repository;public interface MemberRepositoryCustom {
+package study.querydsl.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.List;
+
+public interface MemberRepositoryCustom {
+
+    List<MemberTeamDto> search(MemberSearchCondition condition);
+
+    Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable);
+
+    /**
+     * 컨텐츠 쿼리와 count 쿼리를 서로 다른 커넥션(읽기 전용 트랜잭션)에서 동시에 실행한다.
+     * 별도 트랜잭션이므로 호출한 트랜잭션에서 아직 커밋하지 않은 변경은 보이지 않는다.
+     */
+    Page<MemberTeamDto> searchPageParallel(MemberSearchCondition condition, Pageable pageable);
 }
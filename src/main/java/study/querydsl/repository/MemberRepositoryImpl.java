@@ -1,2 +1,157 @@
-package study.querydsl.repository;public class MemberRepositoryImpl {
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+public class MemberRepositoryImpl implements MemberRepositoryCustom {
+
+    private final JPAQueryFactory queryFactory;
+    private final ParallelQueryExecutor queryExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration parallelTimeout;
+
+    public MemberRepositoryImpl(EntityManager em,
+                                ParallelQueryExecutor queryExecutor,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${member.search.parallel.timeout:5s}") Duration parallelTimeout) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.queryExecutor = queryExecutor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.parallelTimeout = parallelTimeout;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return contentQuery(condition)
+                .orderBy(member.id.asc())
+                .fetch();
+    }
+
+    /**
+     * 컨텐츠 쿼리와 count 쿼리를 분리한다.
+     * - count 쿼리는 team 조건이 없으면 조인하지 않는다.
+     * - 첫 페이지/마지막 페이지처럼 컨텐츠 건수로 전체 건수를 알 수 있으면 count 쿼리를 생략한다.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable) {
+        List<MemberTeamDto> content = contentQuery(condition)
+                .orderBy(member.id.asc())
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        JPAQuery<Long> countQuery = countQuery(condition);
+        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
+    }
+
+    /**
+     * 두 쿼리를 제한된 스레드 풀에서 각자의 읽기 전용 트랜잭션으로 실행한다.
+     * - 풀이 가득 차면 호출 스레드에서 searchPage 로 순차 실행한다.
+     * - 제한 시간을 넘으면 QueryTimeoutException. 쿼리에도 같은 timeout 을 걸어 DB 에서도 중단되게 한다.
+     * - 컨텐츠만으로 전체 건수를 알 수 있으면 count 결과를 기다리지 않는다.
+     */
+    @Override
+    public Page<MemberTeamDto> searchPageParallel(MemberSearchCondition condition, Pageable pageable) {
+        long deadline = System.nanoTime() + parallelTimeout.toNanos();
+        int queryTimeoutMillis = (int) parallelTimeout.toMillis();
+
+        Future<List<MemberTeamDto>> contentFuture;
+        Future<Long> countFuture;
+        try {
+            contentFuture = queryExecutor.submit(() -> readOnlyTransaction.execute(status -> contentQuery(condition)
+                    .orderBy(member.id.asc())
+                    .offset(pageable.getOffset())
+                    .limit(pageable.getPageSize())
+                    .setHint(QueryHints.TIMEOUT_JPA, queryTimeoutMillis)
+                    .fetch()));
+        } catch (RejectedExecutionException e) {
+            return searchPage(condition, pageable);
+        }
+        try {
+            countFuture = queryExecutor.submit(() -> readOnlyTransaction.execute(status -> countQuery(condition)
+                    .setHint(QueryHints.TIMEOUT_JPA, queryTimeoutMillis)
+                    .fetchOne()));
+        } catch (RejectedExecutionException e) {
+            contentFuture.cancel(false);
+            return searchPage(condition, pageable);
+        }
+
+        try {
+            List<MemberTeamDto> content = await(contentFuture, deadline);
+            return PageableExecutionUtils.getPage(content, pageable, () -> await(countFuture, deadline));
+        } finally {
+            //인터럽트는 H2 파일 채널을 닫을 수 있어서 쓰지 않는다. 실행 중인 쿼리는 query timeout 으로 정리된다.
+            contentFuture.cancel(false);
+            countFuture.cancel(false);
+        }
+    }
+
+    private static <T> T await(Future<T> future, long deadlineNanos) {
+        try {
+            return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("회원 검색이 제한 시간을 초과했습니다", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("회원 검색 대기 중 인터럽트되었습니다", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DataAccessResourceFailureException("회원 검색에 실패했습니다", e.getCause());
+        }
+    }
+
+    private JPAQuery<MemberTeamDto> contentQuery(MemberSearchCondition condition) {
+        return MemberSearchPredicates.joinTeam(queryFactory
+                .select(new QMemberTeamDto(
+                        member.id       .as("memberId"),
+                        member.username .as("username"),
+                        member.age      .as("age"),
+                        team.id         .as("teamId"),
+                        team.name       .as("teamName")))
+                .from(member), condition)
+                .where(MemberSearchPredicates.of(condition));
+    }
+
+    private JPAQuery<Long> countQuery(MemberSearchCondition condition) {
+        JPAQuery<Long> countQuery = queryFactory
+                .select(member.count())
+                .from(member);
+        if (MemberSearchPredicates.requiresTeam(condition)) {
+            //team.name 조건이 있으면 team 이 null 인 회원은 어차피 제외되므로 inner join 으로 충분하다.
+            countQuery.join(member.team, team);
+        }
+        return countQuery.where(MemberSearchPredicates.of(condition));
+    }
 }
@@ -0,0 +1,62 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * MemberSearchCondition 을 where 파라미터로 변환하는 공통 조건식.
+ * null 을 반환하면 where 절에서 무시된다.
+ */
+final class MemberSearchPredicates {
+
+    private MemberSearchPredicates() {
+    }
+
+    static BooleanExpression[] of(MemberSearchCondition condition) {
+        return new BooleanExpression[]{
+                usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        };
+    }
+
+    /**
+     * team 테이블 컬럼을 조건으로 사용하는지 여부. false 면 team 조인 없이 조회할 수 있다.
+     */
+    static boolean requiresTeam(MemberSearchCondition condition) {
+        return StringUtils.hasText(condition.getTeamName());
+    }
+
+    /**
+     * team 조건이 있으면 inner join, 없으면 left join 한다.
+     * team.name 조건이 team 이 없는 회원을 어차피 걸러내므로 결과는 같고,
+     * inner join 이어야 DB 가 idx_team_name 으로 팀부터 찾은 뒤 team_id 인덱스로 회원을 조회할 수 있다.
+     */
+    static <T> JPAQuery<T> joinTeam(JPAQuery<T> query, MemberSearchCondition condition) {
+        return requiresTeam(condition)
+                ? query.join(member.team, team)
+                : query.leftJoin(member.team, team);
+    }
+
+    static BooleanExpression usernameEq(String username) {
+        return StringUtils.hasText(username) ? member.username.eq(username) : null;
+    }
+
+    static BooleanExpression teamNameEq(String teamName) {
+        return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
+    }
+
+    static BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    static BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import study.querydsl.jdbc.StatementCounter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 검색 쿼리를 병렬로 실행하기 위한 전용 스레드 풀. 스레드 수와 대기열이 모두 제한되어 있다.
+ * 작업마다 커넥션을 하나씩 쓰므로 pool-size 는 커넥션 풀 크기보다 충분히 작게 잡는다.
+ * 작업 스레드에서 실행한 SQL 도 제출한 스레드의 StatementCounter 에 더해진다.
+ * (Executor 빈으로 등록하면 스프링 부트의 기본 applicationTaskExecutor 가 사라지므로 감싸서 노출한다.)
+ */
+@Component
+public class ParallelQueryExecutor implements DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+    private final StatementCounter statementCounter;
+
+    public ParallelQueryExecutor(StatementCounter statementCounter,
+                                 @Value("${member.search.parallel.pool-size:4}") int poolSize,
+                                 @Value("${member.search.parallel.queue-capacity:32}") int queueCapacity) {
+        this.statementCounter = statementCounter;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("member-search-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @throws RejectedExecutionException 대기열이 가득 찬 경우
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(statementCounter.wrap(task));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,15 @@
+package study.querydsl.repository;
+
+/**
+ * 검색 쿼리를 실행하는 방식.
+ */
+public enum SearchEngine {
+    /**
+     * QueryDSL JPA (HQL -> SQL 변환, 검색 인덱스/캐시 사용)
+     */
+    JPA,
+    /**
+     * MemberJdbcRepository 의 직접 작성한 SQL 과 JDBC 매퍼. 하이버네이트를 거치지 않는다.
+     */
+    JDBC
+}
@@ -0,0 +1,108 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.TeamStatsDrift;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.stats.TeamStatistics;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 팀별 나이 통계 조회.
+ * 평소에는 TeamStatistics 읽기 모델을 그대로 돌려주고(팀 수에 비례), 처음 조회하거나 stale 로 표시된 팀만 groupBy 로 집계한다.
+ *
+ * 읽기 모델은 커밋된 데이터만 반영하므로, 호출한 쪽 트랜잭션의 flush 되지 않은 변경이 섞이지 않도록 새 읽기 전용 트랜잭션에서 집계한다.
+ */
+@Repository
+public class TeamStatsRepository {
+
+    private final JPAQueryFactory queryFactory;
+    private final TeamStatistics statistics;
+
+    public TeamStatsRepository(EntityManager em, TeamStatistics statistics) {
+        this.queryFactory = new JPAQueryFactory(em);
+        this.statistics = statistics;
+    }
+
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
+    public List<TeamStatsDto> findTeamStats() {
+        refresh();
+        return statistics.snapshot();
+    }
+
+    /**
+     * DB 에서 처음부터 다시 집계해 읽기 모델과 비교하고, 다른 팀을 돌려준다.
+     * 검사 중에 커밋된 변경 때문에 일시적인 차이가 보일 수 있다.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
+    public List<TeamStatsDrift> checkConsistency() {
+        refresh();
+        Map<Long, TeamStatsDto> actual = statistics.snapshot().stream()
+                .collect(Collectors.toMap(TeamStatsDto::getTeamId, stats -> stats));
+        Map<Long, TeamStatsDto> expected = TeamStatistics.summarize(aggregate(null));
+
+        Set<Long> teamIds = new TreeSet<>(expected.keySet());
+        teamIds.addAll(actual.keySet());
+        List<TeamStatsDrift> drifts = new ArrayList<>();
+        for (Long teamId : teamIds) {
+            if (!Objects.equals(expected.get(teamId), actual.get(teamId))) {
+                drifts.add(new TeamStatsDrift(teamId, expected.get(teamId), actual.get(teamId)));
+            }
+        }
+        return drifts;
+    }
+
+    /**
+     * 읽기 모델 전체를 DB 에서 다시 채운다.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
+    public void rebuild() {
+        statistics.load(aggregate(null));
+    }
+
+    private void refresh() {
+        if (!statistics.isLoaded()) {
+            statistics.load(aggregate(null));
+            return;
+        }
+        Set<Long> staleTeams = statistics.getStaleTeams();
+        if (!staleTeams.isEmpty()) {
+            statistics.reload(staleTeams, aggregate(staleTeams));
+        }
+    }
+
+    /**
+     * 팀 x 나이별 인원수. teamIds 가 null 이면 전체 팀.
+     */
+    private List<TeamStatistics.Row> aggregate(Collection<Long> teamIds) {
+        List<Tuple> result = queryFactory
+                .select(team.id, team.name, member.age, member.count())
+                .from(team)
+                .leftJoin(team.members, member)
+                .where(teamIds != null ? team.id.in(teamIds) : null)
+                .groupBy(team.id, team.name, member.age)
+                .fetch();
+        return result.stream()
+                .map(tuple -> new TeamStatistics.Row(
+                        tuple.get(team.id),
+                        tuple.get(team.name),
+                        tuple.get(member.age),
+                        tuple.get(member.count())))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,204 @@
+package study.querydsl.stats;
+
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.event.MemberChange;
+import study.querydsl.event.MemberChangeListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 팀별 회원 나이 통계(count/sum/avg/min/max) 읽기 모델.
+ * groupBy 로 회원 전체를 훑는 대신, 커밋된 변경(MemberChangeDispatcher)을 받아 반영한다.
+ *
+ * 팀마다 나이별 인원수를 들고 있으므로 회원이 빠지거나 팀을 옮겨도 min/max 를 다시 조회하지 않는다.
+ * 엔티티 이벤트가 없는 벌크 update/delete 는 INVALIDATED 로 해당 팀을 stale 로 표시하고, 다음 조회 때 그 팀만 다시 집계한다.
+ * 적재(load) 도중 커밋된 변경은 빠지거나 두 번 반영될 수 있으므로 TeamStatsRepository.checkConsistency 로 확인한다.
+ *
+ * 이 프로세스의 엔티티 이벤트와 MemberBulkRepository/MemberBatchRepository 가 알리는 변경만 반영한다.
+ * 직접 실행한 JPQL/SQL update·delete 나 다른 인스턴스의 변경은 보이지 않으므로,
+ * 그런 경로로 회원을 바꾸면 MemberChangeDispatcher 로 INVALIDATED 를 알리거나 TeamStatsRepository.rebuild 를 호출해야 한다.
+ */
+@Component
+public class TeamStatistics implements MemberChangeListener {
+
+    private final Map<Long, Aggregate> teams = new HashMap<>();
+    private final Set<Long> staleTeams = new HashSet<>();
+    private boolean loaded;
+
+    @Override
+    public synchronized void onCommit(List<MemberChange> changes) {
+        for (MemberChange change : changes) {
+            switch (change.getType()) {
+                case MEMBER_ADDED:
+                    memberAdded(change.getTeamId(), change.getAge());
+                    break;
+                case MEMBER_REMOVED:
+                    memberRemoved(change.getTeamId(), change.getAge());
+                    break;
+                case TEAM_SAVED:
+                    if (loaded) {
+                        teams.computeIfAbsent(change.getTeamId(), id -> new Aggregate()).name = change.getTeamName();
+                    }
+                    break;
+                case TEAM_REMOVED:
+                    teams.remove(change.getTeamId());
+                    staleTeams.remove(change.getTeamId());
+                    break;
+                case INVALIDATED:
+                    if (change.isAllTeams()) {
+                        loaded = false;
+                    } else {
+                        staleTeams.addAll(change.getTeamIds());
+                    }
+                    break;
+            }
+        }
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized Set<Long> getStaleTeams() {
+        return new HashSet<>(staleTeams);
+    }
+
+    /**
+     * 전체를 다시 채운다.
+     */
+    public synchronized void load(Collection<Row> rows) {
+        teams.clear();
+        teams.putAll(aggregate(rows));
+        staleTeams.clear();
+        loaded = true;
+    }
+
+    /**
+     * teamIds 팀만 다시 채운다. rows 에 없는 팀은 삭제된 것으로 본다.
+     */
+    public synchronized void reload(Collection<Long> teamIds, Collection<Row> rows) {
+        teams.keySet().removeAll(teamIds);
+        teams.putAll(aggregate(rows));
+        staleTeams.removeAll(teamIds);
+    }
+
+    /**
+     * 팀 id 순으로 정렬된 현재 통계. 팀 수에 비례한다.
+     */
+    public synchronized List<TeamStatsDto> snapshot() {
+        List<TeamStatsDto> result = new ArrayList<>(teams.size());
+        new TreeMap<>(teams).forEach((teamId, aggregate) -> result.add(aggregate.toDto(teamId)));
+        return result;
+    }
+
+    /**
+     * 집계 행으로부터 읽기 모델과 같은 방식으로 통계를 만든다. 일관성 검사의 기준값으로 쓴다.
+     */
+    public static Map<Long, TeamStatsDto> summarize(Collection<Row> rows) {
+        Map<Long, TeamStatsDto> result = new LinkedHashMap<>();
+        aggregate(rows).forEach((teamId, aggregate) -> result.put(teamId, aggregate.toDto(teamId)));
+        return result;
+    }
+
+    private static Map<Long, Aggregate> aggregate(Collection<Row> rows) {
+        Map<Long, Aggregate> result = new TreeMap<>();
+        for (Row row : rows) {
+            Aggregate aggregate = result.computeIfAbsent(row.teamId, id -> new Aggregate());
+            aggregate.name = row.teamName;
+            if (row.age != null && row.count > 0) {
+                aggregate.add(row.age, row.count);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 반영 대상 팀. 아직 적재 전이거나 다시 집계할 팀이면 null 이다.
+     * 모르는 팀(같은 트랜잭션에서 만든 팀의 이벤트가 빠진 경우 등)은 stale 로 돌린다.
+     */
+    private Aggregate target(Long teamId) {
+        if (teamId == null || !loaded || staleTeams.contains(teamId)) {
+            return null;
+        }
+        Aggregate aggregate = teams.get(teamId);
+        if (aggregate == null) {
+            staleTeams.add(teamId);
+        }
+        return aggregate;
+    }
+
+    private void memberAdded(Long teamId, int age) {
+        Aggregate aggregate = target(teamId);
+        if (aggregate != null) {
+            aggregate.add(age, 1);
+        }
+    }
+
+    private void memberRemoved(Long teamId, int age) {
+        Aggregate aggregate = target(teamId);
+        if (aggregate != null && !aggregate.remove(age)) {
+            staleTeams.add(teamId);
+        }
+    }
+
+    /**
+     * 팀 x 나이별 인원수 집계 행. 회원이 없는 팀은 age 가 null, count 가 0 이다.
+     */
+    public static final class Row {
+        private final Long teamId;
+        private final String teamName;
+        private final Integer age;
+        private final long count;
+
+        public Row(Long teamId, String teamName, Integer age, long count) {
+            this.teamId = teamId;
+            this.teamName = teamName;
+            this.age = age;
+            this.count = count;
+        }
+    }
+
+    private static final class Aggregate {
+        private String name;
+        private long count;
+        private long sum;
+        private final TreeMap<Integer, Long> ages = new TreeMap<>();
+
+        void add(int age, long members) {
+            ages.merge(age, members, Long::sum);
+            count += members;
+            sum += (long) age * members;
+        }
+
+        boolean remove(int age) {
+            Long members = ages.get(age);
+            if (members == null) {
+                return false;
+            }
+            if (members == 1) {
+                ages.remove(age);
+            } else {
+                ages.put(age, members - 1);
+            }
+            count--;
+            sum -= age;
+            return true;
+        }
+
+        TeamStatsDto toDto(Long teamId) {
+            if (ages.isEmpty()) {
+                return new TeamStatsDto(teamId, name, 0, 0, null, null);
+            }
+            return new TeamStatsDto(teamId, name, count, sum, ages.firstKey(), ages.lastKey());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+-- 엔티티 매핑과 같은 스키마. (ddl-auto 로 생성할 수 없는 읽기 전용 복제본 초기화, ddl-auto: validate 프로파일에서 사용)
+create sequence if not exists hibernate_sequence start with 1 increment by 1;
+create sequence if not exists member_seq start with 1 increment by 50;
+create sequence if not exists team_seq start with 1 increment by 50;
+
+create table if not exists hello (
+    id       bigint not null,
+    username varchar(255),
+    primary key (id)
+);
+
+create table if not exists team (
+    team_id bigint not null,
+    name    varchar(255),
+    primary key (team_id)
+);
+
+create table if not exists member (
+    member_id bigint  not null,
+    age       integer not null,
+    username  varchar(255),
+    team_id   bigint,
+    primary key (member_id),
+    constraint fk_member_team foreign key (team_id) references team (team_id)
+);
+
+create index if not exists idx_member_username on member (username);
+create index if not exists idx_member_age on member (age);
+create index if not exists idx_member_team_age on member (team_id, age);
+create index if not exists idx_team_name on team (name);
@@ -0,0 +1,137 @@
+package study.querydsl.cache;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberBulkRepository;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.support.CommittedFixture;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * 캐시는 트랜잭션 밖의 조회에서만 쓰이므로 테스트 데이터를 커밋하고, 끝나면 엔티티로 지운다.
+ * save, changeTeam, 벌크 update 가 커밋된 뒤에는 같은 조건의 검색이 새 결과를 돌려줘야 한다.
+ */
+@SpringBootTest
+class MemberSearchCacheIntegrationTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    private MemberBulkRepository memberBulkRepository;
+
+    @Autowired
+    private MemberSearchCache searchCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CommittedFixture fixture;
+    private TransactionTemplate transactionTemplate;
+    private String teamNameA;
+    private String teamNameB;
+    private MemberSearchCondition condition;
+
+    @BeforeEach
+    public void init(){
+        fixture = new CommittedFixture(em, transactionManager);
+        transactionTemplate = fixture.getTransactionTemplate();
+        teamNameA = fixture.teamName("cacheA");
+        teamNameB = fixture.teamName("cacheB");
+        condition = new MemberSearchCondition(null, teamNameA, null, null);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team(teamNameA);
+            em.persist(teamA);
+            em.persist(new Team(teamNameB));
+            em.persist(new Member("cacheMember1", 10, teamA));
+        });
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        fixture.cleanUp();
+    }
+
+    @Test
+    public void cachedResultIsUnmodifiable(){
+        List<MemberTeamDto> result = memberJpaRepository.searchByBuilder(condition);
+
+        Assertions.assertThatThrownBy(result::clear).isInstanceOf(UnsupportedOperationException.class);
+        Assertions.assertThat(memberJpaRepository.searchByBuilder(condition)).hasSize(1);
+    }
+
+    @Test
+    public void refreshedAfterSave(){
+        assertCachedUsernames("cacheMember1");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = findTeam(teamNameA);
+            memberJpaRepository.save(new Member("cacheMember2", 20, teamA));
+        });
+
+        assertCachedUsernames("cacheMember1", "cacheMember2");
+    }
+
+    @Test
+    public void refreshedAfterChangeTeam(){
+        assertCachedUsernames("cacheMember1");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member = em.createQuery("select m from Member m where m.team.name = :name", Member.class)
+                    .setParameter("name", teamNameA)
+                    .getSingleResult();
+            member.changeTeam(findTeam(teamNameB));
+        });
+
+        assertCachedUsernames();
+        Assertions.assertThat(memberJpaRepository.searchByBuilder(new MemberSearchCondition(null, teamNameB, null, null)))
+                .extracting("username")
+                .containsExactly("cacheMember1");
+    }
+
+    @Test
+    public void refreshedAfterBulkUpdate(){
+        assertCachedUsernames("cacheMember1");
+
+        memberBulkRepository.addAgeByTeam(teamNameA, 5);
+
+        Assertions.assertThat(memberJpaRepository.searchByBuilder(condition))
+                .extracting("age")
+                .containsExactly(15);
+    }
+
+    /**
+     * 두 번째 조회가 캐시에서 나오는 것까지 확인해서, 이후의 새 결과가 캐시를 거친 조회임을 보장한다.
+     */
+    private void assertCachedUsernames(Object... usernames) {
+        Assertions.assertThat(memberJpaRepository.searchByBuilder(condition))
+                .extracting("username")
+                .containsExactlyInAnyOrder(usernames);
+        long hits = searchCache.getStats().getHits();
+        Assertions.assertThat(memberJpaRepository.searchByBuilder(condition))
+                .extracting("username")
+                .containsExactlyInAnyOrder(usernames);
+        Assertions.assertThat(searchCache.getStats().getHits()).isEqualTo(hits + 1);
+    }
+
+    private Team findTeam(String name) {
+        return em.createQuery("select t from Team t where t.name = :name", Team.class)
+                .setParameter("name", name)
+                .getSingleResult();
+    }
+}
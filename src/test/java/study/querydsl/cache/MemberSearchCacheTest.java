@@ -0,0 +1,85 @@
+package study.querydsl.cache;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+class MemberSearchCacheTest {
+
+    private final MemberDataVersion dataVersion = new MemberDataVersion();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger loadCount = new AtomicInteger();
+
+    private List<MemberTeamDto> load() {
+        loadCount.incrementAndGet();
+        return Collections.singletonList(new MemberTeamDto(1L, "member1", 10, 1L, "TeamA"));
+    }
+
+    @Test
+    public void hitAndNormalizedKey(){
+        MemberSearchCache cache = new MemberSearchCache(dataVersion, true, 10, Duration.ofSeconds(30), clock::get);
+
+        cache.get(new MemberSearchCondition(null, "TeamA", 10, null), this::load);
+        cache.get(new MemberSearchCondition(" ", "TeamA", 10, null), this::load);
+
+        Assertions.assertThat(loadCount.get()).isEqualTo(1);
+        Assertions.assertThat(cache.getStats().getHits()).isEqualTo(1);
+        Assertions.assertThat(cache.getStats().getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void lruEviction(){
+        MemberSearchCache cache = new MemberSearchCache(dataVersion, true, 2, Duration.ofSeconds(30), clock::get);
+
+        cache.get(new MemberSearchCondition("a", null, null, null), this::load);
+        cache.get(new MemberSearchCondition("b", null, null, null), this::load);
+        cache.get(new MemberSearchCondition("a", null, null, null), this::load);
+        cache.get(new MemberSearchCondition("c", null, null, null), this::load);
+
+        //가장 오래 사용하지 않은 b 가 제거된다.
+        cache.get(new MemberSearchCondition("a", null, null, null), this::load);
+        cache.get(new MemberSearchCondition("b", null, null, null), this::load);
+
+        Assertions.assertThat(loadCount.get()).isEqualTo(4);
+        Assertions.assertThat(cache.getStats().getEvictions()).isEqualTo(2);
+        Assertions.assertThat(cache.getStats().getSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void ttlExpiration(){
+        MemberSearchCache cache = new MemberSearchCache(dataVersion, true, 10, Duration.ofSeconds(30), clock::get);
+        MemberSearchCondition condition = new MemberSearchCondition("a", null, null, null);
+
+        cache.get(condition, this::load);
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        cache.get(condition, this::load);
+
+        Assertions.assertThat(loadCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void invalidatedByWriteStatement(){
+        MemberSearchCache cache = new MemberSearchCache(dataVersion, true, 10, Duration.ofSeconds(30), clock::get);
+        MemberSearchCondition condition = new MemberSearchCondition("a", null, null, null);
+
+        cache.get(condition, this::load);
+        dataVersion.onStatement("select member0_.member_id as member_i1_1_ from member member0_");
+        cache.get(condition, this::load);
+        Assertions.assertThat(loadCount.get()).isEqualTo(1);
+
+        dataVersion.onStatement("/* update study.querydsl.entity.Member */ update member set age=?, team_id=?, username=? where member_id=?");
+        cache.get(condition, this::load);
+        Assertions.assertThat(loadCount.get()).isEqualTo(2);
+
+        dataVersion.onStatement("delete from Team where team_id=?");
+        cache.get(condition, this::load);
+        Assertions.assertThat(loadCount.get()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,130 @@
+package study.querydsl.config;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * routing 프로파일: 주/복제본이 서로 다른 인메모리 H2 이고 복제하지 않으므로,
+ * 복제본에서 읽으면 주 데이터소스에 저장한 데이터가 보이지 않는다.
+ * 스프링 컨텍스트에서는 read-after-write-window 를 테스트보다 길게 잡아 창 안의 동작만 보고,
+ * 창이 지나는 경우는 시계를 주입한 ReadWriteRoutingDataSource 로 확인한다.
+ */
+@SpringBootTest(properties = "member.datasource.routing.read-after-write-window=1h")
+@ActiveProfiles("routing")
+class ReadWriteRoutingTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void readOnlyGoesToReplica(){
+        TransactionTemplate read = new TransactionTemplate(transactionManager);
+        read.setReadOnly(true);
+        //쓰기 전의 읽기 전용 -> 복제본
+        String beforeWrite = read.execute(status -> url(jdbcTemplate));
+        Assertions.assertThat(beforeWrite).contains("replica");
+
+        String teamName = "routing-" + UUID.randomUUID();
+        TransactionTemplate write = new TransactionTemplate(transactionManager);
+        write.executeWithoutResult(status -> {
+            Team routingTeam = new Team(teamName);
+            em.persist(routingTeam);
+            em.persist(new Member("routingMember", 10, routingTeam));
+        });
+        MemberSearchCondition condition = new MemberSearchCondition(null, teamName, null, null);
+
+        //쓰기 직후의 읽기 전용 -> 주 데이터소스. 검색 캐시에도 주 데이터소스의 결과가 저장된다.
+        String afterWriteUrl = read.execute(status -> url(jdbcTemplate));
+        Assertions.assertThat(afterWriteUrl).contains("primary");
+        List<MemberTeamDto> afterWrite = memberJpaRepository.searchByBuilder(condition);
+        Assertions.assertThat(afterWrite).extracting("username").containsExactly("routingMember");
+
+        //쓰기 트랜잭션 안에서의 조회 -> 주 데이터소스
+        List<MemberTeamDto> fromPrimary = write.execute(status -> memberJpaRepository.searchByBuilder(condition));
+        Assertions.assertThat(fromPrimary).extracting("username").containsExactly("routingMember");
+    }
+
+    @Test
+    public void fallbackToPrimaryWhenReplicaIsDown() throws Exception {
+        DriverManagerDataSource primary = new DriverManagerDataSource("jdbc:h2:mem:fallback-primary;DB_CLOSE_DELAY=-1", "sa", "");
+        DriverManagerDataSource replica = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/no-such-replica", "sa", "");
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, Duration.ZERO, Duration.ofMinutes(1));
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try (Connection connection = routing.getConnection()) {
+            Assertions.assertThat(connection.getMetaData().getURL()).contains("fallback-primary");
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+    }
+
+    @Test
+    public void readAfterWriteWindowStartsAtCommit(){
+        AtomicLong clock = new AtomicLong();
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:window-primary;DB_CLOSE_DELAY=-1", "sa", ""),
+                new DriverManagerDataSource("jdbc:h2:mem:window-replica;DB_CLOSE_DELAY=-1", "sa", ""),
+                Duration.ofSeconds(1), Duration.ofMinutes(1), clock::get);
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+        DataSourceTransactionManager routingTransactionManager = new DataSourceTransactionManager(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TransactionTemplate write = new TransactionTemplate(routingTransactionManager);
+        TransactionTemplate read = new TransactionTemplate(routingTransactionManager);
+        read.setReadOnly(true);
+
+        String beforeWrite = read.execute(status -> url(jdbcTemplate));
+        Assertions.assertThat(beforeWrite).contains("window-replica");
+
+        //창보다 오래 걸린 쓰기 트랜잭션. 커밋 직후의 읽기는 아직 주 데이터소스로 간다.
+        write.executeWithoutResult(status -> {
+            jdbcTemplate.execute("select 1");
+            clock.addAndGet(Duration.ofMillis(1_500).toNanos());
+        });
+        String afterCommit = read.execute(status -> url(jdbcTemplate));
+        Assertions.assertThat(afterCommit).contains("window-primary");
+
+        clock.addAndGet(Duration.ofMillis(999).toNanos());
+        String insideWindow = read.execute(status -> url(jdbcTemplate));
+        Assertions.assertThat(insideWindow).contains("window-primary");
+
+        clock.addAndGet(Duration.ofMillis(1).toNanos());
+        String afterWindow = read.execute(status -> url(jdbcTemplate));
+        Assertions.assertThat(afterWindow).contains("window-replica");
+    }
+
+    private static String url(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getURL());
+    }
+}
@@ -0,0 +1,129 @@
+package study.querydsl.controller;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.jdbc.StatementCounter;
+import study.querydsl.repository.MemberBulkRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class MemberControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private MemberBulkRepository memberBulkRepository;
+
+    private Team teamA;
+
+    @BeforeEach
+    public void init(){
+        teamA = new Team("TeamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void notModifiedWithoutQuery() throws Exception {
+        String etag = mockMvc.perform(get("/v1/members").param("teamName", "TeamA"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        long before = statementCounter.current();
+        mockMvc.perform(get("/v1/members").param("teamName", "TeamA").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        Assertions.assertThat(statementCounter.current() - before).isZero();
+
+        //조건이 다르면 다른 ETag
+        mockMvc.perform(get("/v1/members").param("teamName", "TeamB").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void modifiedAfterWrite() throws Exception {
+        String etag = mockMvc.perform(get("/v2/members").param("teamName", "TeamA").param("page", "0"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        em.persist(new Member("member3", 30, em.find(Team.class, teamA.getId())));
+        em.flush();
+
+        mockMvc.perform(get("/v2/members").param("teamName", "TeamA").param("page", "0").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    @Test
+    public void modifiedAfterChangeTeam() throws Exception {
+        Team teamB = new Team("TeamB");
+        em.persist(teamB);
+        em.flush();
+        String etag = mockMvc.perform(get("/v1/members").param("teamName", "TeamA"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Member member1 = em.createQuery("select m from Member m where m.username = 'member1' and m.team.id = :teamId", Member.class)
+                .setParameter("teamId", teamA.getId())
+                .getSingleResult();
+        member1.changeTeam(teamB);
+        em.flush();
+
+        mockMvc.perform(get("/v1/members").param("teamName", "TeamA").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    @Test
+    public void modifiedAfterBulkMove() throws Exception {
+        Team teamB = new Team("TeamB");
+        em.persist(teamB);
+        em.flush();
+        String etag = mockMvc.perform(get("/v1/members").param("teamName", "TeamA"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        //엔티티를 거치지 않는 벌크 update 도 버전을 바꾼다.
+        memberBulkRepository.moveMembers(teamA.getId(), teamB.getId(), new MemberSearchCondition());
+
+        mockMvc.perform(get("/v1/members").param("teamName", "TeamA").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    @Test
+    public void emptyFieldsIsBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/members/fields").param("fields", ""))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/members/fields").param("fields", "USERNAME").param("teamName", "TeamA"))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,112 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.support.CommittedFixture;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 내보내기는 요청 스레드가 아닌 비동기 스레드에서 쓰므로 테스트 데이터를 커밋하고, 끝나면 지운다.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberExportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CommittedFixture fixture;
+    private String teamName;
+
+    @BeforeEach
+    public void init(){
+        fixture = new CommittedFixture(em, transactionManager);
+        teamName = fixture.teamName("export");
+        fixture.getTransactionTemplate().executeWithoutResult(status -> {
+            Team exportTeam = new Team(teamName);
+            em.persist(exportTeam);
+            for (int i = 0; i < 5; i++) {
+                em.persist(new Member("exportMember" + i, 10 + i, exportTeam));
+            }
+        });
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        fixture.cleanUp();
+    }
+
+    @Test
+    public void exportAsNdjson() throws Exception {
+        assertExported(export(false));
+        assertExported(export(true));
+    }
+
+    @Test
+    public void invalidFetchSizeIsBadRequest() throws Exception {
+        mockMvc.perform(get("/v1/members/export").param("teamName", teamName).param("fetchSize", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/members/export").param("teamName", teamName).param("fetchSize", "0").param("parallel", "true"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * fetchSize 보다 결과가 많아서 커서를 여러 번 나눠 읽는다.
+     */
+    private String export(boolean parallel) throws Exception {
+        MvcResult started = mockMvc.perform(get("/v1/members/export").param("teamName", teamName)
+                        .param("fetchSize", "2").param("parallel", String.valueOf(parallel)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    /**
+     * 한 줄에 JSON 한 건, member_id 순
+     */
+    private void assertExported(String body) throws Exception {
+        String[] lines = body.split("\n");
+        List<MemberTeamDto> rows = new ArrayList<>();
+        for (String line : lines) {
+            rows.add(objectMapper.readValue(line, MemberTeamDto.class));
+        }
+
+        Assertions.assertThat(lines).hasSize(5);
+        Assertions.assertThat(rows).extracting("username")
+                .containsExactly("exportMember0", "exportMember1", "exportMember2", "exportMember3", "exportMember4");
+        Assertions.assertThat(rows).extracting("teamName").containsOnly(teamName);
+    }
+}
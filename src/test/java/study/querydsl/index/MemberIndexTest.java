@@ -0,0 +1,80 @@
+package study.querydsl.index;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+class MemberIndexTest {
+
+    private final MemberIndex index = MemberIndex.builder()
+            .add(1L, "member1", 40, 100L, "teamA")
+            .add(2L, "member2", 10, 100L, "teamA")
+            .add(3L, "member3", 30, 200L, "teamB")
+            .add(4L, "member4", 20, 200L, "teamB")
+            .add(5L, "member5", 20, null, null)
+            .add(6L, "member6", 35, 300L, "teamA")
+            .build();
+
+    @Test
+    public void ageRange(){
+        Assertions.assertThat(usernames(null, 20, 30, null))
+                .containsExactlyInAnyOrder("member3", "member4", "member5");
+        Assertions.assertThat(usernames(null, 41, null, null)).isEmpty();
+        Assertions.assertThat(usernames(null, null, null, null)).hasSize(6);
+    }
+
+    @Test
+    public void teamAndAgeRange(){
+        //이름이 같은 팀(100, 300)은 모두 걸린다.
+        Assertions.assertThat(usernames("teamA", 15, null, null))
+                .containsExactlyInAnyOrder("member1", "member6");
+        Assertions.assertThat(usernames("teamC", null, null, null)).isEmpty();
+    }
+
+    @Test
+    public void excludedAndRename(){
+        PagedBitSet.Editor excluded = PagedBitSet.EMPTY.edit();
+        excluded.set(index.ordinalOf(1L));
+        Assertions.assertThat(usernames("teamA", null, null, excluded.build()::get))
+                .containsExactlyInAnyOrder("member2", "member6");
+
+        MemberIndex renamed = index.withTeamName(200L, "teamC");
+        List<MemberTeamDto> rows = new ArrayList<>();
+        renamed.forEach("teamC", null, null, null, ordinal -> rows.add(renamed.row(ordinal)));
+        Assertions.assertThat(rows).extracting("teamName").containsOnly("teamC");
+        Assertions.assertThat(rows).extracting("memberId").containsExactlyInAnyOrder(3L, 4L);
+        Assertions.assertThat(index.ordinalOf(99L)).isEqualTo(-1);
+    }
+
+    @Test
+    public void manyTeams(){
+        //팀마다 전체 ordinal 폭의 비트맵을 두면 10만 팀 x 100만 회원에서 10GB 가 넘는다.
+        //팀 배열은 소속 회원 수만큼만 쓰므로 기본 테스트 힙에서 만들어져야 한다.
+        int teamCount = 100_000;
+        int memberCount = 1_000_000;
+        MemberIndex.Builder builder = MemberIndex.builder();
+        for (int i = 0; i < memberCount; i++) {
+            int team = i % teamCount;
+            //팀마다 회원이 나이 0~9 에 고루 퍼져서 ordinal 범위 전체에 흩어진다.
+            builder.add(i, null, i / teamCount, (long) team, "team" + team);
+        }
+        MemberIndex large = builder.build();
+
+        Assertions.assertThat(large.size()).isEqualTo(memberCount);
+        List<Long> ids = new ArrayList<>();
+        Assertions.assertThat(large.forEach("team7", 3, 5, null, ordinal -> ids.add(large.row(ordinal).getMemberId())))
+                .isEqualTo(3);
+        Assertions.assertThat(ids).containsExactly(300_007L, 400_007L, 500_007L);
+        Assertions.assertThat(large.forEach("team99999", null, null, null, ordinal -> { })).isEqualTo(10);
+    }
+
+    private List<String> usernames(String teamName, Integer ageGoe, Integer ageLoe, IntPredicate excluded) {
+        List<String> result = new ArrayList<>();
+        index.forEach(teamName, ageGoe, ageLoe, excluded, ordinal -> result.add(index.row(ordinal).getUsername()));
+        return result;
+    }
+}
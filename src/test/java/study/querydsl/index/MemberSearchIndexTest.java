@@ -0,0 +1,137 @@
+package study.querydsl.index;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.support.CommittedFixture;
+import study.querydsl.repository.MemberBulkRepository;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * 인덱스는 커밋된 변경만 반영하므로 테스트 데이터를 커밋하고, 끝나면 엔티티로 지운다.
+ * 쓰기 트랜잭션 안의 searchByBuilder 는 인덱스를 거치지 않으므로 DB 결과와 비교하는 데 쓴다.
+ */
+@SpringBootTest(properties = "member.search.index.enabled=true")
+class MemberSearchIndexTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MemberSearchIndex searchIndex;
+
+    @Autowired
+    private MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    private MemberBulkRepository memberBulkRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CommittedFixture fixture;
+    private TransactionTemplate transactionTemplate;
+    private String teamNameA;
+    private String teamNameB;
+
+    @BeforeEach
+    public void init(){
+        fixture = new CommittedFixture(em, transactionManager);
+        transactionTemplate = fixture.getTransactionTemplate();
+        teamNameA = fixture.teamName("indexA");
+        teamNameB = fixture.teamName("indexB");
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team(teamNameA);
+            Team teamB = new Team(teamNameB);
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 5; i++) {
+                em.persist(new Member("indexMember" + i, 10 * (i + 1), i % 2 == 0 ? teamA : teamB));
+            }
+        });
+        searchIndex.reload();
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        fixture.cleanUp();
+    }
+
+    @Test
+    public void searchFromIndex(){
+        assertSameAsDatabase(new MemberSearchCondition(null, teamNameA, 20, null));
+        assertSameAsDatabase(new MemberSearchCondition(null, teamNameB, null, 30));
+        Assertions.assertThat(searchIndex.search(new MemberSearchCondition(null, teamNameA, null, null)))
+                .extracting("username")
+                .containsExactlyInAnyOrder("indexMember0", "indexMember2", "indexMember4");
+    }
+
+    @Test
+    public void keepInSyncOnWrites(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = findTeam(teamNameA);
+            Team teamB = findTeam(teamNameB);
+            memberJpaRepository.save(new Member("indexMember5", 60, teamA));
+            findMember("indexMember0").changeTeam(teamB);
+            findMember("indexMember1").setAge(15);
+            em.remove(findMember("indexMember2"));
+        });
+        //롤백된 변경은 반영하지 않는다.
+        transactionTemplate.executeWithoutResult(status -> {
+            memberJpaRepository.save(new Member("indexMember6", 70, findTeam(teamNameA)));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertSameAsDatabase(new MemberSearchCondition(null, teamNameA, null, null));
+        assertSameAsDatabase(new MemberSearchCondition(null, teamNameB, 10, 20));
+
+        searchIndex.compact();
+        assertSameAsDatabase(new MemberSearchCondition(null, teamNameA, null, null));
+        assertSameAsDatabase(new MemberSearchCondition(null, teamNameB, null, null));
+    }
+
+    @Test
+    public void searchAfterBulkUpdate(){
+        memberBulkRepository.addAgeByTeam(teamNameA, 1);
+
+        //다시 적재되기 전에는 DB 로, 적재된 뒤에는 인덱스로 답한다.
+        Assertions.assertThat(memberJpaRepository.searchByBuilder(new MemberSearchCondition(null, teamNameA, null, null)))
+                .extracting("age")
+                .containsExactlyInAnyOrder(11, 31, 51);
+    }
+
+    private void assertSameAsDatabase(MemberSearchCondition condition) {
+        List<MemberTeamDto> indexed = searchIndex.search(condition);
+        List<MemberTeamDto> database = transactionTemplate.execute(status -> memberJpaRepository.searchByBuilder(condition));
+
+        Assertions.assertThat(indexed).isNotNull();
+        //두 경로 모두 member_id 순이다.
+        Assertions.assertThat(indexed).isEqualTo(database);
+    }
+
+    private Team findTeam(String name) {
+        return em.createQuery("select t from Team t where t.name = :name", Team.class)
+                .setParameter("name", name)
+                .getSingleResult();
+    }
+
+    private Member findMember(String username) {
+        return em.createQuery("select m from Member m where m.username = :username and m.team.name in (:names)", Member.class)
+                .setParameter("username", username)
+                .setParameter("names", List.of(teamNameA, teamNameB))
+                .getSingleResult();
+    }
+}
@@ -0,0 +1,31 @@
+package study.querydsl.index;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PagedBitSetTest {
+
+    @Test
+    public void editLeavesSourceUnchanged(){
+        PagedBitSet.Editor editor = PagedBitSet.EMPTY.edit();
+        editor.set(3);
+        editor.set(200_000);
+        PagedBitSet first = editor.build();
+
+        PagedBitSet.Editor next = first.edit();
+        next.set(4);
+        next.set(1_000_000);
+        PagedBitSet second = next.build();
+
+        Assertions.assertThat(first.get(3)).isTrue();
+        Assertions.assertThat(first.get(200_000)).isTrue();
+        Assertions.assertThat(first.get(4)).isFalse();
+        Assertions.assertThat(first.get(1_000_000)).isFalse();
+        Assertions.assertThat(second.get(3)).isTrue();
+        Assertions.assertThat(second.get(4)).isTrue();
+        Assertions.assertThat(second.get(200_000)).isTrue();
+        Assertions.assertThat(second.get(1_000_000)).isTrue();
+        Assertions.assertThat(second.get(65_536 + 3)).isFalse();
+        Assertions.assertThat(PagedBitSet.EMPTY.get(3)).isFalse();
+    }
+}
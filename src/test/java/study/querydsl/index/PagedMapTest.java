@@ -0,0 +1,38 @@
+package study.querydsl.index;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class PagedMapTest {
+
+    @Test
+    public void editLeavesSourceUnchanged(){
+        PagedMap.Editor<String> editor = PagedMap.<String>empty().edit();
+        for (long key = 0; key < 1_000; key++) {
+            editor.put(key, "v" + key);
+        }
+        PagedMap<String> first = editor.build();
+
+        PagedMap.Editor<String> next = first.edit();
+        next.put(1L, "changed");
+        next.remove(2L);
+        next.remove(5_000L);
+        next.put(5_001L, "added");
+        PagedMap<String> second = next.build();
+
+        Assertions.assertThat(first.size()).isEqualTo(1_000);
+        Assertions.assertThat(values(first)).contains("v1", "v2").doesNotContain("changed", "added");
+        Assertions.assertThat(second.size()).isEqualTo(1_000);
+        Assertions.assertThat(values(second)).contains("changed", "added").doesNotContain("v1", "v2");
+        Assertions.assertThat(PagedMap.empty().size()).isZero();
+    }
+
+    private static List<String> values(PagedMap<String> map) {
+        List<String> result = new ArrayList<>();
+        map.forEachValue(result::add);
+        return result;
+    }
+}
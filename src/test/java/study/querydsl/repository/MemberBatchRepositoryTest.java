@@ -0,0 +1,155 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.BatchResult;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.stats.TeamStatistics;
+import study.querydsl.support.CommittedFixture;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 배치 처리는 청크마다 커밋하므로 테스트 데이터를 커밋하고, 끝나면 지운다.
+ */
+@SpringBootTest
+class MemberBatchRepositoryTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MemberBatchRepository memberBatchRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TeamStatsRepository teamStatsRepository;
+
+    @Autowired
+    private TeamStatistics teamStatistics;
+
+    private CommittedFixture fixture;
+    private TransactionTemplate transactionTemplate;
+    private String teamName;
+
+    @BeforeEach
+    public void init(){
+        fixture = new CommittedFixture(em, transactionManager);
+        transactionTemplate = fixture.getTransactionTemplate();
+        teamName = fixture.teamName("batch");
+        transactionTemplate.executeWithoutResult(status -> {
+            Team batchTeam = new Team(teamName);
+            em.persist(batchTeam);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("batchMember" + i, 10 + i, batchTeam));
+            }
+        });
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        fixture.cleanUp();
+    }
+
+    @Test
+    public void processInChunks(){
+        MemberSearchCondition condition = new MemberSearchCondition(null, teamName, null, null);
+
+        BatchResult result = memberBatchRepository.process(condition, 3, row -> {
+            if (row.getAge() >= 15) {
+                row.setAge(row.getAge() + 100);
+            }
+        });
+
+        Assertions.assertThat(result.getRowsRead()).isEqualTo(10);
+        Assertions.assertThat(result.getRowsUpdated()).isEqualTo(5);
+        Assertions.assertThat(result.getCommits()).isEqualTo(4);
+        Assertions.assertThat(result.getRowsPerSecond()).isPositive();
+
+        List<Integer> ages = transactionTemplate.execute(status -> em
+                .createQuery("select m.age from Member m where m.team.name = :name order by m.age", Integer.class)
+                .setParameter("name", teamName)
+                .getResultList());
+        Assertions.assertThat(ages).containsExactly(10, 11, 12, 13, 14, 115, 116, 117, 118, 119);
+    }
+
+    @Test
+    public void skipUnchangedRows(){
+        BatchResult result = memberBatchRepository.process(new MemberSearchCondition(null, teamName, null, null), 4, row -> {
+        });
+
+        Assertions.assertThat(result.getRowsRead()).isEqualTo(10);
+        Assertions.assertThat(result.getRowsUpdated()).isZero();
+    }
+
+    @Test
+    public void invalidateEachCommittedChunk(){
+        //2차 캐시에 올려 둔 회원
+        Long memberId = transactionTemplate.execute(status -> em
+                .createQuery("select m from Member m where m.team.name = :name and m.username = 'batchMember0'", Member.class)
+                .setParameter("name", teamName)
+                .getSingleResult()
+                .getId());
+        transactionTemplate.executeWithoutResult(status -> em.find(Member.class, memberId));
+
+        //두 번째 청크를 처리하는 중에는 첫 청크(3건)의 변경이 이미 보여야 한다.
+        List<Integer> agesDuringBatch = new ArrayList<>();
+        memberBatchRepository.process(new MemberSearchCondition(null, teamName, null, null), 3, row -> {
+            if (row.getUsername().equals("batchMember3")) {
+                agesDuringBatch.add(transactionTemplate.execute(status -> em.find(Member.class, memberId).getAge()));
+            }
+            row.setAge(row.getAge() + 100);
+        });
+
+        Assertions.assertThat(agesDuringBatch).containsExactly(110);
+    }
+
+    @Test
+    public void publishChangedRows(){
+        Long teamId = transactionTemplate.execute(status -> em
+                .createQuery("select t.id from Team t where t.name = :name", Long.class)
+                .setParameter("name", teamName)
+                .getSingleResult());
+        teamStatsRepository.findTeamStats();
+
+        memberBatchRepository.process(new MemberSearchCondition(null, teamName, null, null), 3, row -> {
+            if (row.getAge() >= 15) {
+                row.setAge(row.getAge() + 100);
+            }
+        });
+
+        //바뀐 행을 그대로 반영하므로 다시 집계할 팀이 생기지 않는다.
+        Assertions.assertThat(teamStatistics.isLoaded()).isTrue();
+        Assertions.assertThat(teamStatistics.getStaleTeams()).doesNotContain(teamId);
+        Assertions.assertThat(teamStatistics.snapshot())
+                .filteredOn(stats -> stats.getTeamId().equals(teamId))
+                .singleElement()
+                .satisfies(stats -> {
+                    Assertions.assertThat(stats.getCount()).isEqualTo(10);
+                    Assertions.assertThat(stats.getSum()).isEqualTo(10 + 11 + 12 + 13 + 14 + 115 + 116 + 117 + 118 + 119);
+                    Assertions.assertThat(stats.getMax()).isEqualTo(119);
+                });
+    }
+
+    @Test
+    public void rejectInsideTransaction(){
+        Assertions.assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status ->
+                        memberBatchRepository.process(new MemberSearchCondition(), row -> {
+                        })))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,166 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.BulkResult;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.support.CommittedFixture;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * 벌크 연산은 청크마다 커밋하므로 테스트 데이터를 커밋하고, 끝나면 지운다.
+ * deleteByAgeLessThan 은 팀과 상관없이 지우므로 다른 테스트와 공유하는 DB 대신 전용 인메모리 DB 를 쓴다.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:bulk;DB_CLOSE_DELAY=-1")
+class MemberBulkRepositoryTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MemberBulkRepository memberBulkRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CommittedFixture fixture;
+    private TransactionTemplate transactionTemplate;
+    private String teamName;
+    private String toTeamName;
+
+    @BeforeEach
+    public void init(){
+        fixture = new CommittedFixture(em, transactionManager);
+        transactionTemplate = fixture.getTransactionTemplate();
+        teamName = fixture.teamName("bulk");
+        toTeamName = fixture.teamName("bulk-to");
+        transactionTemplate.executeWithoutResult(status -> {
+            Team bulkTeam = new Team(teamName);
+            em.persist(bulkTeam);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("bulkMember" + i, 10 + i, bulkTeam));
+            }
+        });
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        fixture.cleanUp();
+    }
+
+    @Test
+    public void addAgeByTeamInChunks(){
+        //2차 캐시에 올려 둔 회원도 벌크 update 뒤에는 다시 읽어야 한다.
+        Long memberId = transactionTemplate.execute(status -> em
+                .createQuery("select m from Member m where m.team.name = :name and m.username = 'bulkMember0'", Member.class)
+                .setParameter("name", teamName)
+                .getSingleResult()
+                .getId());
+        transactionTemplate.executeWithoutResult(status -> em.find(Member.class, memberId));
+
+        BulkResult result = memberBulkRepository.addAgeByTeam(teamName, 1, 3);
+
+        Assertions.assertThat(result.getTotalRows()).isEqualTo(10);
+        //맞는 id 로 청크를 나누므로 10건 / 3건 = 청크 4개, 빈 청크는 없다.
+        Assertions.assertThat(result.getChunks()).extracting("rows").containsExactly(3L, 3L, 3L, 1L);
+        Integer cachedAge = transactionTemplate.execute(status -> em.find(Member.class, memberId).getAge());
+        Assertions.assertThat(cachedAge).isEqualTo(11);
+
+        List<Integer> ages = transactionTemplate.execute(status -> em
+                .createQuery("select m.age from Member m where m.team.name = :name order by m.age", Integer.class)
+                .setParameter("name", teamName)
+                .getResultList());
+        Assertions.assertThat(ages).containsExactly(11, 12, 13, 14, 15, 16, 17, 18, 19, 20);
+    }
+
+    @Test
+    public void deleteByAgeLessThanInChunks(){
+        BulkResult result = memberBulkRepository.deleteByAgeLessThan(15, 4);
+
+        Assertions.assertThat(result.getTotalRows()).isEqualTo(5);
+        Long remaining = transactionTemplate.execute(status -> em
+                .createQuery("select count(m) from Member m where m.team.name = :name", Long.class)
+                .setParameter("name", teamName)
+                .getSingleResult());
+        Assertions.assertThat(remaining).isEqualTo(5);
+    }
+
+    @Test
+    public void rejectInsideTransaction(){
+        Assertions.assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status ->
+                        memberBulkRepository.deleteByAgeLessThan(15)))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void moveMembers(){
+        Team[] teams = createToTeam();
+
+        long moved = memberBulkRepository.moveMembers(teams[0].getId(), teams[1].getId(),
+                new MemberSearchCondition(null, null, 15, null));
+
+        Assertions.assertThat(moved).isEqualTo(5);
+        List<String> usernames = transactionTemplate.execute(status -> em
+                .createQuery("select m.username from Member m where m.team.id = :teamId order by m.age", String.class)
+                .setParameter("teamId", teams[1].getId())
+                .getResultList());
+        Assertions.assertThat(usernames).containsExactly("bulkMember5", "bulkMember6", "bulkMember7", "bulkMember8", "bulkMember9");
+    }
+
+    @Test
+    public void moveMembersKeepsPersistenceContextConsistent(){
+        Team[] teams = createToTeam();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Team fromTeam = em.find(Team.class, teams[0].getId());
+            Assertions.assertThat(fromTeam.getMembers()).hasSize(10);
+            Member member = em.createQuery("select m from Member m where m.username = 'bulkMember9' and m.team.id = :teamId", Member.class)
+                    .setParameter("teamId", teams[0].getId())
+                    .getSingleResult();
+
+            memberBulkRepository.moveMembers(teams[0].getId(), teams[1].getId(),
+                    new MemberSearchCondition(null, null, 15, null));
+
+            Assertions.assertThat(member.getTeam().getId()).isEqualTo(teams[1].getId());
+            //초기화돼 있던 컬렉션은 다시 읽는다.
+            Assertions.assertThat(Hibernate.isInitialized(fromTeam.getMembers())).isFalse();
+            Assertions.assertThat(fromTeam.getMembers()).hasSize(5);
+            Assertions.assertThat(em.find(Team.class, teams[1].getId()).getMembers()).hasSize(5).contains(member);
+        });
+    }
+
+    @Test
+    public void rejectTeamNameWhenMoving(){
+        Assertions.assertThatThrownBy(() -> memberBulkRepository.moveMembers(1L, 2L,
+                        new MemberSearchCondition(null, teamName, null, null)))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * @return {원래 팀, 옮길 팀}
+     */
+    private Team[] createToTeam() {
+        return transactionTemplate.execute(status -> {
+            Team fromTeam = em.createQuery("select t from Team t where t.name = :name", Team.class)
+                    .setParameter("name", teamName)
+                    .getSingleResult();
+            Team toTeam = new Team(toTeamName);
+            em.persist(toTeam);
+            return new Team[]{fromTeam, toTeam};
+        });
+    }
+}
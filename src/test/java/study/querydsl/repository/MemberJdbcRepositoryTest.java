@@ -0,0 +1,75 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * JDBC 검색이 JPA 검색과 같은 결과를 돌려주는지 비교한다.
+ */
+@SpringBootTest
+@Transactional
+class MemberJdbcRepositoryTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MemberJpaRepository memberJpaRepository;
+
+    @BeforeEach
+    public void init(){
+        Team teamA = new Team("TeamA");
+        Team teamB = new Team("TeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        //팀 없는 회원
+        em.persist(new Member("member5", 50));
+        //flush 하지 않는다. JDBC 엔진이 먼저 flush 해야 보인다.
+    }
+
+    @Test
+    public void sameResultAsJpa(){
+        List<MemberSearchCondition> conditions = List.of(
+                new MemberSearchCondition(null, null, null, null),
+                new MemberSearchCondition("member1", null, null, null),
+                new MemberSearchCondition(null, "TeamB", null, null),
+                new MemberSearchCondition(null, "TeamA", 15, 40),
+                new MemberSearchCondition(null, null, 35, null),
+                new MemberSearchCondition("member5", null, null, 50),
+                new MemberSearchCondition("", " ", null, null),
+                new MemberSearchCondition(null, "NoTeam", null, null));
+
+        for (MemberSearchCondition condition : conditions) {
+            List<MemberTeamDto> jpa = memberJpaRepository.searchByBuilder(condition, SearchEngine.JPA);
+            List<MemberTeamDto> jdbc = memberJpaRepository.searchByBuilder(condition, SearchEngine.JDBC);
+            Assertions.assertThat(jdbc).as(condition.toString()).isEqualTo(jpa);
+        }
+    }
+
+    @Test
+    public void mapsMemberWithoutTeam(){
+        List<MemberTeamDto> result = memberJpaRepository.searchByBuilder(
+                new MemberSearchCondition("member5", null, null, null), SearchEngine.JDBC);
+
+        Assertions.assertThat(result).hasSize(1);
+        Assertions.assertThat(result.get(0).getTeamId()).isNull();
+        Assertions.assertThat(result.get(0).getTeamName()).isNull();
+        Assertions.assertThat(result.get(0).getAge()).isEqualTo(50);
+    }
+}
@@ -1,21 +1,40 @@
 package study.querydsl.repository;
 
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberCursorPage;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamColumns;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.MemberTeamField;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.jdbc.StatementBudget;
+import study.querydsl.jdbc.StatementBudgetExceededException;
 
 import javax.persistence.EntityManager;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -29,6 +48,15 @@ class MemberJpaRepositoryTest {
     @Autowired
     private MemberJpaRepository memberJpaRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StatementBudget statementBudget;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @BeforeEach
     public void init(){
         //팀생성
@@ -109,4 +137,251 @@ class MemberJpaRepositoryTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void searchFieldsTest(){
+        MemberSearchCondition condition = new MemberSearchCondition(null, "TeamB", null, null);
+
+        List<MemberTeamDto> result = memberJpaRepository.searchFields(condition,
+                EnumSet.of(MemberTeamField.USERNAME, MemberTeamField.TEAM_ID));
+
+        Assertions.assertThat(result).extracting("username").containsExactly("member3", "member4");
+        Assertions.assertThat(result).extracting("teamId").doesNotContainNull();
+        Assertions.assertThat(result).extracting("memberId").containsOnlyNulls();
+        Assertions.assertThat(result).extracting("teamName").containsOnlyNulls();
+        Assertions.assertThatThrownBy(() -> memberJpaRepository.searchFields(condition, EnumSet.noneOf(MemberTeamField.class)))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void searchColumnsTest(){
+        em.persist(new Member("member5", 50));
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        MemberTeamColumns columns = memberJpaRepository.searchColumns(condition, 2);
+        List<MemberTeamDto> rows = new ArrayList<>();
+        memberJpaRepository.streamByBuilder(condition, 2, rows::add);
+
+        Assertions.assertThat(columns.size()).isEqualTo(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Assertions.assertThat(columns.toDto(i)).isEqualTo(rows.get(i));
+        }
+        //팀 이름은 사전으로 한 번씩만 담는다.
+        Assertions.assertThat(columns.teamNameCount())
+                .isEqualTo(rows.stream().map(MemberTeamDto::getTeamName).filter(Objects::nonNull).distinct().count());
+        List<String> usernames = new ArrayList<>();
+        columns.forEach(row -> usernames.add(row.getUsername()));
+        Assertions.assertThat(usernames).contains("member1", "member5");
+    }
+
+    @Test
+    public void searchByCursorTest(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        MemberCursorPage first = memberJpaRepository.searchByCursor(condition, null, 2);
+        Assertions.assertThat(first.getContent()).extracting("username").containsExactly("member2", "member3");
+        Assertions.assertThat(first.hasNext()).isTrue();
+
+        MemberCursorPage second = memberJpaRepository.searchByCursor(condition, first.getNextCursor(), 2);
+        Assertions.assertThat(second.getContent()).extracting("username").containsExactly("member4");
+        Assertions.assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    public void searchByCursorInvalidTest(){
+        //@Repository 의 예외 변환으로 IllegalArgumentException 은 InvalidDataAccessApiUsageException 으로 감싸진다.
+        Assertions.assertThatThrownBy(() -> memberJpaRepository.searchByCursor(new MemberSearchCondition(), "invalid!", 2))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void streamByBuilderTest(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamB");
+
+        List<String> usernames = new ArrayList<>();
+        long count = memberJpaRepository.streamByBuilder(condition, 1, dto -> usernames.add(dto.getUsername()));
+
+        Assertions.assertThat(count).isEqualTo(2);
+        Assertions.assertThat(usernames).containsExactly("member3", "member4");
+    }
+
+    @Test
+    public void saveAllBatchTest(){
+        int teamCount = 100;
+        int memberCount = 10_000;
+
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < teamCount; i++) {
+            teams.add(new Team("batchTeam" + i));
+        }
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < memberCount; i++) {
+            members.add(new Member("batchMember" + i, i % 80, teams.get(i % teamCount)));
+        }
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        long start = System.nanoTime();
+        memberJpaRepository.saveAllTeams(teams);
+        memberJpaRepository.saveAll(members);
+        long elapsedNanos = System.nanoTime() - start;
+
+        //insert 는 batch 단위로, 시퀀스는 allocationSize 단위로 호출되므로 문장 수는 건수보다 훨씬 적어야 한다.
+        long statementCount = statistics.getPrepareStatementCount();
+        System.out.println("rows = " + (teamCount + memberCount)
+                + ", statements = " + statementCount
+                + ", rows/s = " + (long) ((teamCount + memberCount) / (elapsedNanos / 1_000_000_000.0)));
+        Assertions.assertThat(statistics.getEntityInsertCount()).isEqualTo(teamCount + memberCount);
+        Assertions.assertThat(statementCount).isLessThan((teamCount + memberCount) / 10);
+    }
+
+    @Test
+    public void saveAllDetachesOnlySavedEntities(){
+        Team keepTeam = new Team("keepTeam");
+        em.persist(keepTeam);
+        Member keepMember = em.createQuery("select m from Member m where m.username = 'member1'", Member.class)
+                .getSingleResult();
+
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            members.add(new Member("savedMember" + i, i, keepTeam));
+        }
+        memberJpaRepository.saveAll(members);
+
+        //호출한 쪽이 관리하던 엔티티는 그대로 남아 이후 변경도 반영된다.
+        Assertions.assertThat(em.contains(keepTeam)).isTrue();
+        Assertions.assertThat(em.contains(keepMember)).isTrue();
+        Assertions.assertThat(members).noneMatch(em::contains);
+        keepMember.setAge(99);
+        em.flush();
+        em.clear();
+        Assertions.assertThat(em.find(Member.class, keepMember.getId()).getAge()).isEqualTo(99);
+    }
+
+    @Test
+    public void secondLevelCacheTest(){
+        //read-write 캐시는 커밋된 데이터만 읽어 주므로, 테스트 트랜잭션과 별도로 커밋하고 별도 트랜잭션에서 조회한다.
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        String teamName = "cacheTeam-" + UUID.randomUUID();
+        Long memberId = requiresNew.execute(status -> {
+            Team cacheTeam = new Team(teamName);
+            em.persist(cacheTeam);
+            Member cacheMember = new Member("cacheMember", 10, cacheTeam);
+            em.persist(cacheMember);
+            return cacheMember.getId();
+        });
+
+        try {
+            Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+            statistics.clear();
+
+            //Member, Team 모두 2차 캐시에서 조회되므로 DB 를 다시 조회하지 않는다.
+            for (int i = 0; i < 3; i++) {
+                String findTeamName = requiresNew.execute(status ->
+                        memberJpaRepository.findById(memberId).get().getTeam().getName());
+                Assertions.assertThat(findTeamName).isEqualTo(teamName);
+            }
+
+            Assertions.assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+            Assertions.assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThanOrEqualTo(4);
+        } finally {
+            requiresNew.executeWithoutResult(status -> {
+                Member cacheMember = em.find(Member.class, memberId);
+                Team cacheTeam = cacheMember.getTeam();
+                em.remove(cacheMember);
+                em.remove(cacheTeam);
+            });
+        }
+    }
+
+    @Test
+    public void fetchTeamWithoutNPlusOneTest(){
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            teams.add(new Team("fetchTeam" + i));
+        }
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            members.add(new Member("fetchMember" + i, i % 80, teams.get(i % teams.size())));
+        }
+        memberJpaRepository.saveAllTeams(teams);
+        memberJpaRepository.saveAll(members);
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        //Member -> Team : fetch join 한 번
+        List<Member> findMembers = memberJpaRepository.findAllWithTeam();
+        for (Member findMember : findMembers) {
+            if (findMember.getTeam() != null) {
+                findMember.getTeam().getName();
+            }
+        }
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        em.clear();
+        statistics.clear();
+
+        //Team -> Members : 팀 조회 한 번 + batch size 단위 IN 쿼리
+        List<Team> findTeams = memberJpaRepository.findAllTeamsWithMembers();
+        long memberCount = 0;
+        for (Team findTeam : findTeams) {
+            memberCount += findTeam.getMembers().size();
+        }
+        Assertions.assertThat(memberCount).isGreaterThanOrEqualTo(1_000);
+        Assertions.assertThat(statistics.getPrepareStatementCount())
+                .isLessThanOrEqualTo(1 + (findTeams.size() + 99) / 100);
+    }
+
+    @Test
+    public void repositoryMetricsTest(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamA");
+        condition.setAgeGoe(10);
+        memberJpaRepository.searchByBuilder(condition);
+
+        Timer timer = meterRegistry.find("member.repository.query")
+                .tags("method", "MemberJpaRepository.searchByBuilder", "condition", "teamName,ageGoe")
+                .timer();
+        Assertions.assertThat(timer).isNotNull();
+        Assertions.assertThat(timer.count()).isGreaterThanOrEqualTo(1);
+
+        DistributionSummary statements = meterRegistry.find("member.repository.statements")
+                .tags("method", "MemberJpaRepository.searchByBuilder", "condition", "teamName,ageGoe")
+                .summary();
+        Assertions.assertThat(statements).isNotNull();
+        Assertions.assertThat(statements.totalAmount()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void statementBudgetTest(){
+        List<Long> memberIds = new ArrayList<>();
+        for (Member findMember : memberJpaRepository.findAll()) {
+            memberIds.add(findMember.getId());
+        }
+        em.clear();
+        em.getEntityManagerFactory().getCache().evictAll();
+
+        //회원마다 따로 조회(N+1) 하면 예산 초과로 실패한다.
+        Assertions.assertThatThrownBy(() -> {
+            try (StatementBudget.Scope ignored = statementBudget.open("n+1", 2)) {
+                for (Long memberId : memberIds) {
+                    em.find(Member.class, memberId);
+                }
+            }
+        }).satisfies(e -> Assertions.assertThat(NestedExceptionUtils.getMostSpecificCause(e))
+                .isInstanceOf(StatementBudgetExceededException.class));
+        em.clear();
+
+        //fetch join 한 번이면 통과
+        try (StatementBudget.Scope scope = statementBudget.open("fetch join", 2)) {
+            memberJpaRepository.findAllWithTeam();
+            Assertions.assertThat(scope.getStatements()).isEqualTo(1);
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.support.CommittedFixture;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 파티션은 각자의 트랜잭션에서 읽으므로 테스트 데이터를 커밋하고, 끝나면 지운다.
+ */
+@SpringBootTest(properties = {"member.scan.threads=3", "member.scan.partitions-per-thread=2", "member.scan.buffer-size=4"})
+class MemberParallelScannerTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MemberParallelScanner parallelScanner;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CommittedFixture fixture;
+    private TransactionTemplate transactionTemplate;
+    private String teamName;
+    private MemberSearchCondition condition;
+
+    @BeforeEach
+    public void init(){
+        fixture = new CommittedFixture(em, transactionManager);
+        transactionTemplate = fixture.getTransactionTemplate();
+        teamName = fixture.teamName("scan");
+        condition = new MemberSearchCondition(null, teamName, null, null);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team scanTeam = new Team(teamName);
+            em.persist(scanTeam);
+            for (int i = 0; i < 50; i++) {
+                em.persist(new Member("scanMember" + i, i, scanTeam));
+            }
+        });
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        fixture.cleanUp();
+    }
+
+    @Test
+    public void scanOrdered(){
+        List<Long> ids = new ArrayList<>();
+
+        long count = parallelScanner.scan(condition, true, row -> ids.add(row.getMemberId()));
+
+        Assertions.assertThat(count).isEqualTo(50);
+        Assertions.assertThat(ids).hasSize(50).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void scanUnordered(){
+        List<String> usernames = new ArrayList<>();
+
+        long count = parallelScanner.scan(condition, false, row -> usernames.add(row.getUsername()));
+
+        Assertions.assertThat(count).isEqualTo(50);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            expected.add("scanMember" + i);
+        }
+        Assertions.assertThat(usernames).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @Test
+    public void scanWithFetchSize(){
+        List<Long> ids = new ArrayList<>();
+
+        long count = parallelScanner.scan(condition, true, 3, row -> ids.add(row.getMemberId()));
+
+        Assertions.assertThat(count).isEqualTo(50);
+        Assertions.assertThat(ids).hasSize(50).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void reduce(){
+        long[] ageSum = parallelScanner.reduce(condition, () -> new long[2],
+                (partial, row) -> {
+                    partial[0]++;
+                    partial[1] += row.getAge();
+                },
+                (left, right) -> new long[]{left[0] + right[0], left[1] + right[1]});
+
+        Assertions.assertThat(ageSum).containsExactly(50, 49 * 50 / 2);
+    }
+
+    @Test
+    public void consumerFailureCancelsPartitions(){
+        List<MemberTeamDto> rows = Collections.synchronizedList(new ArrayList<>());
+
+        Assertions.assertThatThrownBy(() -> parallelScanner.scan(condition, true, row -> {
+                    rows.add(row);
+                    if (rows.size() == 10) {
+                        throw new IllegalStateException("stop");
+                    }
+                }))
+                //@Repository 의 예외 변환으로 감싸지므로 원인을 확인한다.
+                .satisfies(e -> Assertions.assertThat(NestedExceptionUtils.getMostSpecificCause(e))
+                        .isInstanceOf(IllegalStateException.class)
+                        .hasMessage("stop"));
+        Assertions.assertThat(rows).hasSize(10);
+
+        //취소된 뒤에도 풀은 다시 쓸 수 있다.
+        Assertions.assertThat(parallelScanner.scan(condition, false, row -> {
+        })).isEqualTo(50);
+    }
+
+    @Test
+    public void poolSizeStaysBelowConnectionPool(){
+        //threads 0: 코어 수와 커넥션 풀 절반 중 작은 값
+        Assertions.assertThat(MemberParallelScanner.poolSize(0, 16, 10)).isEqualTo(5);
+        Assertions.assertThat(MemberParallelScanner.poolSize(0, 2, 10)).isEqualTo(2);
+        Assertions.assertThat(MemberParallelScanner.poolSize(0, 16, 1)).isEqualTo(1);
+        Assertions.assertThat(MemberParallelScanner.poolSize(9, 16, 10)).isEqualTo(9);
+        Assertions.assertThatThrownBy(() -> MemberParallelScanner.poolSize(10, 16, 10))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,179 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.jdbc.StatementCounter;
+import study.querydsl.support.CommittedFixture;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 병렬 검색은 별도 트랜잭션에서 실행되므로 테스트 데이터를 커밋하고, 끝나면 지운다.
+ */
+@SpringBootTest
+class MemberRepositoryParallelTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    private CommittedFixture fixture;
+    private TransactionTemplate transactionTemplate;
+    private String teamName;
+
+    @BeforeEach
+    public void init(){
+        fixture = new CommittedFixture(em, transactionManager);
+        transactionTemplate = fixture.getTransactionTemplate();
+        teamName = fixture.teamName("parallel");
+        transactionTemplate.executeWithoutResult(status -> {
+            Team parallelTeam = new Team(teamName);
+            em.persist(parallelTeam);
+            for (int i = 0; i < 5; i++) {
+                em.persist(new Member("parallelMember" + i, 20 + i, parallelTeam));
+            }
+        });
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        fixture.cleanUp();
+    }
+
+    @Test
+    public void searchPageParallelTest(){
+        MemberSearchCondition condition = new MemberSearchCondition(null, teamName, 21, null);
+
+        Page<MemberTeamDto> parallel = memberRepository.searchPageParallel(condition, PageRequest.of(1, 2));
+        Page<MemberTeamDto> serial = memberRepository.searchPage(condition, PageRequest.of(1, 2));
+
+        Assertions.assertThat(parallel.getTotalElements()).isEqualTo(4);
+        Assertions.assertThat(parallel.getContent()).extracting("username")
+                .containsExactly("parallelMember3", "parallelMember4");
+        Assertions.assertThat(parallel.getContent()).isEqualTo(serial.getContent());
+    }
+
+    @Test
+    public void workerStatementsCountedForCaller(){
+        MemberSearchCondition condition = new MemberSearchCondition(null, teamName, 21, null);
+        long before = statementCounter.current();
+
+        //두 번째 페이지라 컨텐츠와 count 쿼리를 모두 기다리고, 둘 다 풀 스레드에서 실행된다.
+        memberRepository.searchPageParallel(condition, PageRequest.of(1, 2));
+
+        Assertions.assertThat(statementCounter.current() - before).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    public void fallbackToSerialWhenPoolIsFull() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition(null, teamName, 21, null);
+        Page<MemberTeamDto> serial = memberRepository.searchPage(condition, PageRequest.of(1, 2));
+
+        //컨텐츠 쿼리 제출부터 거절: 스레드와 대기열(1개)이 모두 차 있다.
+        Page<MemberTeamDto> contentRejected = searchWithBusyPool(condition, 2);
+        Assertions.assertThat(contentRejected.getContent()).isEqualTo(serial.getContent());
+        Assertions.assertThat(contentRejected.getTotalElements()).isEqualTo(4);
+
+        //count 쿼리 제출이 거절: 먼저 제출한 컨텐츠 쿼리를 취소하고 순차 실행한다.
+        Page<MemberTeamDto> countRejected = searchWithBusyPool(condition, 1);
+        Assertions.assertThat(countRejected.getContent()).isEqualTo(serial.getContent());
+        Assertions.assertThat(countRejected.getTotalElements()).isEqualTo(4);
+    }
+
+    @Test
+    public void timeoutWhenQueriesDoNotFinish() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition(null, teamName, 21, null);
+        //스레드 하나를 붙잡아 두면 컨텐츠/count 쿼리는 대기열에서 시작하지 못한다.
+        ParallelQueryExecutor executor = new ParallelQueryExecutor(statementCounter, 1, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.submit(() -> release.await(10, TimeUnit.SECONDS));
+            MemberRepositoryImpl repository = repository(executor, Duration.ofMillis(1));
+
+            Assertions.assertThatThrownBy(() -> repository.searchPageParallel(condition, PageRequest.of(1, 2)))
+                    .isInstanceOf(QueryTimeoutException.class);
+        } finally {
+            release.countDown();
+            executor.destroy();
+        }
+    }
+
+    @Test
+    public void cancelCountWhenContentFails(){
+        MemberSearchCondition condition = new MemberSearchCondition(null, teamName, 21, null);
+        //컨텐츠 쿼리는 실패하고 count 쿼리는 끝나지 않는 실행기
+        List<CompletableFuture<?>> submitted = new ArrayList<>();
+        ParallelQueryExecutor executor = new ParallelQueryExecutor(statementCounter, 1, 1) {
+            @Override
+            public <T> Future<T> submit(Callable<T> task) {
+                CompletableFuture<T> future = new CompletableFuture<>();
+                if (submitted.isEmpty()) {
+                    future.completeExceptionally(new IllegalStateException("content failed"));
+                }
+                submitted.add(future);
+                return future;
+            }
+        };
+        try {
+            MemberRepositoryImpl repository = repository(executor, Duration.ofSeconds(5));
+
+            Assertions.assertThatThrownBy(() -> repository.searchPageParallel(condition, PageRequest.of(1, 2)))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("content failed");
+            Assertions.assertThat(submitted).hasSize(2);
+            Assertions.assertThat(submitted.get(1).isCancelled()).isTrue();
+        } finally {
+            executor.destroy();
+        }
+    }
+
+    /**
+     * 스레드 1개, 대기열 1개인 풀에 검색이 끝날 때까지 붙잡아 두는 작업을 busyTasks 개 넣고 검색한다.
+     */
+    private Page<MemberTeamDto> searchWithBusyPool(MemberSearchCondition condition, int busyTasks) throws Exception {
+        ParallelQueryExecutor executor = new ParallelQueryExecutor(statementCounter, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < busyTasks; i++) {
+                executor.submit(() -> release.await(10, TimeUnit.SECONDS));
+            }
+            return repository(executor, Duration.ofSeconds(5)).searchPageParallel(condition, PageRequest.of(1, 2));
+        } finally {
+            release.countDown();
+            executor.destroy();
+        }
+    }
+
+    private MemberRepositoryImpl repository(ParallelQueryExecutor executor, Duration timeout) {
+        return new MemberRepositoryImpl(em, executor, transactionManager, timeout);
+    }
+}
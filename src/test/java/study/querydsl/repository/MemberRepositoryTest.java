@@ -1,2 +1,103 @@
-package study.querydsl.repository;public class MemberRepositoryTest {
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+@SpringBootTest
+@Transactional
+class MemberRepositoryTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @BeforeEach
+    public void init(){
+        //팀생성
+        Team teamA = new Team("TeamA");
+        Team teamB = new Team("TeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        //회원생성
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        //저장.
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void basicTest(){
+        Member member = new Member("member5", 50);
+        memberRepository.save(member);
+
+        Member findMember = memberRepository.findById(member.getId()).get();
+        Assertions.assertThat(findMember).isEqualTo(member);
+
+        List<Member> result = memberRepository.findByUsername("member5");
+        Assertions.assertThat(result).containsExactly(member);
+    }
+
+    @Test
+    public void searchTest(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(35);
+        condition.setAgeLoe(40);
+        condition.setTeamName("TeamB");
+
+        List<MemberTeamDto> result = memberRepository.search(condition);
+        Assertions.assertThat(result).extracting("username").containsExactly("member4");
+    }
+
+    @Test
+    public void searchPageTest(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("TeamA");
+
+        //컨텐츠 건수가 페이지 크기보다 작은 첫 페이지 -> count 쿼리 생략
+        Page<MemberTeamDto> result = memberRepository.searchPage(condition, PageRequest.of(0, 3));
+        Assertions.assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2");
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(2);
+
+        //count 쿼리 실행
+        Page<MemberTeamDto> paged = memberRepository.searchPage(condition, PageRequest.of(0, 1));
+        Assertions.assertThat(paged.getContent()).extracting("username").containsExactly("member1");
+        Assertions.assertThat(paged.getTotalElements()).isEqualTo(2);
+        Assertions.assertThat(paged.getTotalPages()).isEqualTo(2);
+    }
+
+    @Test
+    public void changeTeamWithoutLoadingMembers(){
+        Member member = memberRepository.findByUsername("member1").get(0);
+        Team teamB = em.createQuery("select t from Team t where t.name = 'TeamB'", Team.class).getSingleResult();
+
+        member.changeTeam(teamB);
+        em.flush();
+
+        //읽지 않은 Team.members 는 건드리지 않는다.
+        Assertions.assertThat(Hibernate.isInitialized(teamB.getMembers())).isFalse();
+        em.clear();
+        Assertions.assertThat(memberRepository.search(new MemberSearchCondition(null, "TeamB", null, null)))
+                .extracting("username").containsExactlyInAnyOrder("member1", "member3", "member4");
+    }
 }
@@ -0,0 +1,159 @@
+package study.querydsl.repository;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamField;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 검색 조건 조합별로 실제 실행된 SQL 에 H2 EXPLAIN 을 실행해서 인덱스를 타는지 검증한다.
+ * 조건이 하나도 없는 검색은 원래 전체 조회이므로 대상이 아니다.
+ * p6spy 는 SQL 주석 안의 JPQL 파라미터(?1)에도 값을 채우므로 이 테스트에서는 SQL 주석을 끈다.
+ * H2 의 ANALYZE 는 트랜잭션을 커밋해서 테스트 데이터가 롤백되지 않으므로, 공유 DB 대신 이 테스트만의 메모리 DB 를 쓰고
+ * 데이터는 테스트 트랜잭션 밖(@BeforeAll)에서 한 번만 넣고 커밋한다.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.use_sql_comments=false",
+        "spring.datasource.url=jdbc:h2:mem:plan;DB_CLOSE_DELAY=-1"})
+@Transactional
+@Import(MemberSearchPlanTest.SqlCaptureConfig.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MemberSearchPlanTest {
+
+    @Autowired
+    private MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SqlCapture sqlCapture;
+
+    @BeforeAll
+    public void init(){
+        List<Team> teams = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            teams.add(new Team("planTeam" + i));
+        }
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            members.add(new Member("planMember" + i, i % 80, teams.get(i % teams.size())));
+        }
+        memberJpaRepository.saveAllTeams(teams);
+        memberJpaRepository.saveAll(members);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    public void username(){
+        assertNoTableScan(new MemberSearchCondition("planMember1", null, null, null));
+    }
+
+    @Test
+    public void ageRange(){
+        assertNoTableScan(new MemberSearchCondition(null, null, 10, 12));
+    }
+
+    @Test
+    public void teamName(){
+        assertNoTableScan(new MemberSearchCondition(null, "planTeam3", null, null));
+    }
+
+    @Test
+    public void teamNameAndAgeRange(){
+        assertNoTableScan(new MemberSearchCondition(null, "planTeam3", 20, 40));
+    }
+
+    @Test
+    public void usernameAndTeamName(){
+        assertNoTableScan(new MemberSearchCondition("planMember3", "planTeam3", null, null));
+    }
+
+    @Test
+    public void searchFieldsWithoutTeamJoin(){
+        sqlCapture.clear();
+        memberJpaRepository.searchFields(new MemberSearchCondition(null, null, 10, 12),
+                EnumSet.of(MemberTeamField.MEMBER_ID, MemberTeamField.USERNAME, MemberTeamField.TEAM_ID));
+
+        Assertions.assertThat(sqlCapture.selects()).singleElement()
+                .satisfies(sql -> Assertions.assertThat(sql).doesNotContainIgnoringCase("join"));
+    }
+
+    private void assertNoTableScan(MemberSearchCondition condition) {
+        sqlCapture.clear();
+        memberJpaRepository.searchByBuilder(condition);
+        memberJpaRepository.searchByCursor(condition, null, 10);
+        memberJpaRepository.searchMembersWithTeam(condition);
+        memberJpaRepository.searchFields(condition, EnumSet.of(MemberTeamField.USERNAME, MemberTeamField.TEAM_NAME));
+        memberRepository.search(condition);
+        //count 쿼리까지 실행되도록 작은 페이지로 조회
+        memberRepository.searchPage(condition, PageRequest.of(0, 1));
+
+        List<String> statements = sqlCapture.selects();
+        Assertions.assertThat(statements).isNotEmpty();
+        for (String sql : statements) {
+            String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+            System.out.println("plan = " + plan);
+            Assertions.assertThat(plan)
+                    .as("table scan: %s", sql)
+                    .doesNotContainIgnoringCase("tableScan");
+        }
+    }
+
+    @TestConfiguration
+    static class SqlCaptureConfig {
+        @Bean
+        public SqlCapture sqlCapture() {
+            return new SqlCapture();
+        }
+    }
+
+    /**
+     * p6spy 에 등록되어 파라미터 값이 채워진 SQL 을 수집한다.
+     */
+    static class SqlCapture extends JdbcEventListener {
+        private final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onAfterExecuteQuery(PreparedStatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+            statements.add(statementInformation.getSqlWithValues());
+        }
+
+        void clear() {
+            statements.clear();
+        }
+
+        List<String> selects() {
+            List<String> selects = new ArrayList<>();
+            for (String sql : statements) {
+                if (sql.replaceFirst("(?s)^\\s*/\\*.*?\\*/", "").trim().toLowerCase().startsWith("select")) {
+                    selects.add(sql);
+                }
+            }
+            return selects;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.support.CommittedFixture;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+/**
+ * 통계 읽기 모델은 커밋된 뒤에 반영되므로 테스트 데이터를 커밋하고, 끝나면 엔티티로 지운다.
+ */
+@SpringBootTest
+class TeamStatsRepositoryTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MemberJpaRepository memberJpaRepository;
+
+    @Autowired
+    private MemberBulkRepository memberBulkRepository;
+
+    @Autowired
+    private TeamStatsRepository teamStatsRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CommittedFixture fixture;
+    private TransactionTemplate transactionTemplate;
+    private String teamNameA;
+    private String teamNameB;
+
+    @BeforeEach
+    public void init(){
+        fixture = new CommittedFixture(em, transactionManager);
+        transactionTemplate = fixture.getTransactionTemplate();
+        teamNameA = fixture.teamName("statsA");
+        teamNameB = fixture.teamName("statsB");
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team(teamNameA);
+            Team teamB = new Team(teamNameB);
+            em.persist(teamA);
+            em.persist(teamB);
+            memberJpaRepository.save(new Member("statsMember1", 10, teamA));
+            memberJpaRepository.save(new Member("statsMember2", 20, teamA));
+            memberJpaRepository.save(new Member("statsMember3", 30, teamB));
+            memberJpaRepository.save(new Member("statsMember4", 40, teamB));
+        });
+    }
+
+    @AfterEach
+    public void cleanUp(){
+        fixture.cleanUp();
+    }
+
+    @Test
+    public void statsAfterSave(){
+        assertStats(teamNameA, 2, 30, 10, 20);
+        assertStats(teamNameB, 2, 70, 30, 40);
+        assertConsistent();
+    }
+
+    @Test
+    public void statsAfterChangeTeam(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member1 = em.createQuery("select m from Member m where m.team.name = :name and m.age = 10", Member.class)
+                    .setParameter("name", teamNameA)
+                    .getSingleResult();
+            Team teamB = em.createQuery("select t from Team t where t.name = :name", Team.class)
+                    .setParameter("name", teamNameB)
+                    .getSingleResult();
+            member1.changeTeam(teamB);
+        });
+
+        assertStats(teamNameA, 1, 20, 20, 20);
+        assertStats(teamNameB, 3, 80, 10, 40);
+        assertConsistent();
+    }
+
+    @Test
+    public void statsAfterBulkUpdate(){
+        memberBulkRepository.addAgeByTeam(teamNameB, 5);
+
+        assertStats(teamNameA, 2, 30, 10, 20);
+        assertStats(teamNameB, 2, 80, 35, 45);
+        assertConsistent();
+    }
+
+    @Test
+    public void rollbackIsNotApplied(){
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = em.createQuery("select t from Team t where t.name = :name", Team.class)
+                    .setParameter("name", teamNameA)
+                    .getSingleResult();
+            memberJpaRepository.save(new Member("statsMember5", 50, teamA));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertStats(teamNameA, 2, 30, 10, 20);
+    }
+
+    /**
+     * 공유 DB 에는 다른 컨텍스트(읽기 모델이 따로 있다)가 커밋한 데이터도 있으므로 이 테스트의 팀만 본다.
+     */
+    private void assertConsistent() {
+        List<Long> teamIds = transactionTemplate.execute(status -> em
+                .createQuery("select t.id from Team t where t.name in (:names)", Long.class)
+                .setParameter("names", List.of(teamNameA, teamNameB))
+                .getResultList());
+        Assertions.assertThat(teamStatsRepository.checkConsistency())
+                .filteredOn(drift -> teamIds.contains(drift.getTeamId()))
+                .isEmpty();
+    }
+
+    private void assertStats(String teamName, long count, long sum, int min, int max) {
+        TeamStatsDto stats = teamStatsRepository.findTeamStats().stream()
+                .filter(s -> teamName.equals(s.getTeamName()))
+                .findFirst()
+                .orElseThrow();
+        Assertions.assertThat(stats.getCount()).isEqualTo(count);
+        Assertions.assertThat(stats.getSum()).isEqualTo(sum);
+        Assertions.assertThat(stats.getMin()).isEqualTo(min);
+        Assertions.assertThat(stats.getMax()).isEqualTo(max);
+    }
+}
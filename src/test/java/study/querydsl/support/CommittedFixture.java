@@ -0,0 +1,58 @@
+package study.querydsl.support;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 청크 커밋, 병렬 조회, 커밋 후 반영되는 읽기 모델처럼 테스트 트랜잭션 밖에서 읽는 기능을 위한 커밋된 테스트 데이터.
+ * 팀 이름에 UUID 를 붙여 공유 DB 의 다른 데이터와 섞이지 않게 하고, 끝나면 그 팀의 회원과 팀을 엔티티로 지운다.
+ * JPQL delete 는 엔티티 이벤트가 없어서 팀 통계/검색 인덱스에 남으므로 쓰지 않는다.
+ */
+public class CommittedFixture {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final List<String> teamNames = new ArrayList<>();
+
+    public CommittedFixture(EntityManager em, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public TransactionTemplate getTransactionTemplate() {
+        return transactionTemplate;
+    }
+
+    /**
+     * prefix 로 시작하는 고유한 팀 이름. cleanUp 에서 이 이름의 팀과 회원을 지운다.
+     */
+    public String teamName(String prefix) {
+        String teamName = prefix + "-" + UUID.randomUUID();
+        teamNames.add(teamName);
+        return teamName;
+    }
+
+    public void cleanUp() {
+        if (teamNames.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("select m from Member m where m.team.name in (:names)", Member.class)
+                    .setParameter("names", teamNames)
+                    .getResultList()
+                    .forEach(em::remove);
+            em.createQuery("select t from Team t where t.name in (:names)", Team.class)
+                    .setParameter("names", teamNames)
+                    .getResultList()
+                    .forEach(em::remove);
+        });
+        teamNames.clear();
+    }
+}